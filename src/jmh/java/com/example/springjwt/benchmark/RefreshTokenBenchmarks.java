@@ -0,0 +1,27 @@
+package com.example.springjwt.benchmark;
+
+import com.example.springjwt.security.RoleAuthorities;
+import com.example.springjwt.util.JwtTokenUtil;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Refresh token generation which runs on every signin and refresh
+ **/
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RefreshTokenBenchmarks {
+
+    private final JwtTokenUtil jwtUtil = new JwtTokenUtil(new RoleAuthorities());
+
+    @Benchmark
+    public String generateRefreshToken() {
+        return jwtUtil.generateRefreshToken();
+    }
+
+}
@@ -0,0 +1,131 @@
+package com.example.springjwt.benchmark;
+
+import com.auth0.jwt.JWT;
+import com.auth0.jwt.algorithms.Algorithm;
+import com.example.springjwt.entity.Role;
+import com.example.springjwt.entity.User;
+import com.example.springjwt.security.RoleAuthorities;
+import com.example.springjwt.util.JwtTokenUtil;
+import com.example.springjwt.util.TokenClaims;
+import com.example.springjwt.util.TokenVerification;
+import com.example.springjwt.util.VerifiedTokenCache;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static com.example.springjwt.util.SecurityConstant.*;
+
+/**
+ * Access token hot path: issuance, verification of valid tokens, the staged
+ * rejection of expired, tampered and garbage tokens, the authority mapping
+ * and the verified-token cache
+ **/
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TokenBenchmarks {
+
+    private static final String GARBAGE_TOKEN = "not-a-token.at.all";
+
+    @Param({"1", "3", "10"})
+    private int roleCount;
+
+    private final JwtTokenUtil jwtUtil = new JwtTokenUtil(new RoleAuthorities());
+
+    private final VerifiedTokenCache tokenCache = new VerifiedTokenCache();
+
+    private User user;
+
+    private String validToken;
+
+    private String expiredToken;
+
+    private String tamperedToken;
+
+    private TokenClaims claims;
+
+    private TokenClaims legacyClaims;
+
+    @Setup
+    public void setup() {
+
+        user = new User("john.doe", "John Doe", "john.doe@testuser.com", "john.doe@1234");
+
+        List<String> roleNames = new ArrayList<>();
+
+        for (int i = 1; i <= roleCount; i++) {
+            user.getRoles().add(new Role((short) i, "ROLE_BENCHMARK_" + i));
+            roleNames.add("ROLE_BENCHMARK_" + i);
+        }
+
+        validToken = jwtUtil.createJwtToken(user);
+
+        expiredToken = JWT.create()
+                .withSubject(user.getUserName())
+                .withExpiresAt(new Date(System.currentTimeMillis() - EXPIRES_ACCESS_TOKEN))
+                .withIssuer(ISSUER)
+                .withClaim("roles", roleNames)
+                .sign(Algorithm.HMAC256(KEY.getBytes()));
+
+        // Same header and payload, signature of another token
+        String otherToken = jwtUtil.createJwtToken(new User("jane.doe", "Jane Doe", "jane.doe@testuser.com", ""));
+        tamperedToken = validToken.substring(0, validToken.lastIndexOf('.'))
+                + otherToken.substring(otherToken.lastIndexOf('.'));
+
+        claims = jwtUtil.verifyToken(validToken);
+
+        // Role names claim of the tokens issued before the role mask
+        legacyClaims = new TokenClaims(claims.getSubject(), 0, claims.getIssuer(), claims.getExpiresAt(),
+                roleNames.toArray(String[]::new), null);
+
+        tokenCache.put(validToken, jwtUtil.getAuthToken(claims), claims.getExpiresAt());
+    }
+
+    @Benchmark
+    public String createJwtToken() {
+        return jwtUtil.createJwtToken(user);
+    }
+
+    @Benchmark
+    public UsernamePasswordAuthenticationToken getAuthTokenValid() {
+        return jwtUtil.getAuthToken(validToken);
+    }
+
+    @Benchmark
+    public TokenVerification checkTokenExpired() {
+        return jwtUtil.checkToken(expiredToken);
+    }
+
+    @Benchmark
+    public TokenVerification checkTokenTampered() {
+        return jwtUtil.checkToken(tamperedToken);
+    }
+
+    @Benchmark
+    public TokenVerification checkTokenGarbage() {
+        return jwtUtil.checkToken(GARBAGE_TOKEN);
+    }
+
+    @Benchmark
+    public UsernamePasswordAuthenticationToken authorityMapping() {
+        return jwtUtil.getAuthToken(claims);
+    }
+
+    @Benchmark
+    public UsernamePasswordAuthenticationToken authorityMappingLegacy() {
+        return jwtUtil.getAuthToken(legacyClaims);
+    }
+
+    @Benchmark
+    public UsernamePasswordAuthenticationToken cachedAuthToken() {
+        return tokenCache.get(validToken);
+    }
+
+}
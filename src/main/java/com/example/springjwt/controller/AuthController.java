@@ -3,7 +3,10 @@ package com.example.springjwt.controller;
 
 import com.example.springjwt.entity.RefreshToken;
 import com.example.springjwt.entity.User;
+import com.example.springjwt.exception.ApiRequestException;
 import com.example.springjwt.service.TokenService;
+import com.example.springjwt.util.AuthJsonCodec;
+import com.example.springjwt.util.TokenPair;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.PostMapping;
@@ -11,8 +14,14 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.validation.ConstraintViolation;
+import javax.validation.ConstraintViolationException;
 import javax.validation.Valid;
-import java.util.Map;
+import javax.validation.Validator;
+import java.io.IOException;
+import java.util.Set;
 
 @RestController
 @RequestMapping("/auth")
@@ -21,20 +30,45 @@ public class AuthController {
 
     private final UserController userController;
     private final TokenService tokenService;
+    private final AuthJsonCodec jsonCodec;
+    private final Validator validator;
+
+
+    /**
+     * Reads the token without data binding, so it is checked against the
+     * constraints of RefreshToken here, with the same errors as @Valid
+     **/
+    private String readRefreshToken(HttpServletRequest request) {
+
+        String token;
+
+        try {
+            token = jsonCodec.readRefreshToken(request);
+        } catch (IOException e) {
+            throw new ApiRequestException("Invalid refresh token");
+        }
+
+        Set<ConstraintViolation<RefreshToken>> violations = validator.validateValue(RefreshToken.class, "token", token);
+
+        if (!violations.isEmpty())
+            throw new ConstraintViolationException(violations);
+
+        return token;
+    }
 
     @PostMapping("/refresh")
-    public ResponseEntity<Map<String, String>> refreshTokens(@Valid @RequestBody RefreshToken refreshToken) {
+    public void refreshTokens(HttpServletRequest request, HttpServletResponse response) throws IOException {
 
-        Map<String, String> newTokens = tokenService.refreshTokens(refreshToken.getToken());
+        TokenPair newTokens = tokenService.refreshTokens(readRefreshToken(request));
 
-        return ResponseEntity.ok(newTokens);
+        jsonCodec.writeTokens(newTokens, response);
 
     }
 
     @PostMapping("/signout")
-    public ResponseEntity<?> logout(@Valid @RequestBody RefreshToken refreshToken) {
+    public ResponseEntity<?> logout(HttpServletRequest request) {
 
-        tokenService.deleteRefreshToken(refreshToken.getToken());
+        tokenService.deleteRefreshToken(readRefreshToken(request));
 
         return ResponseEntity.ok().build();
     }
@@ -46,4 +80,3 @@ public class AuthController {
 
 
 }
-
@@ -9,6 +9,7 @@ import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
 import javax.validation.Valid;
@@ -23,9 +24,19 @@ public class RoleController {
 
     private final RoleService roleService;
 
+    /**
+     * Roles with the catalog version as their ETag. The version is read before
+     * the roles, a role added in between only makes the next request a full one.
+     **/
     @GetMapping("/roles")
-    public ResponseEntity<List<Role>> getRoles() {
-        return ResponseEntity.ok(roleService.getRoles());
+    public ResponseEntity<List<Role>> getRoles(WebRequest request) {
+
+        String etag = "roles-" + roleService.getRolesVersion();
+
+        if (request.checkNotModified(etag))
+            return null;
+
+        return ResponseEntity.ok().eTag(etag).body(roleService.getRoles());
     }
 
     @PostMapping("/roles")
@@ -1,36 +1,156 @@
 package com.example.springjwt.controller;
 
 import com.example.springjwt.entity.User;
+import com.example.springjwt.exception.ApiRequestException;
+import com.example.springjwt.repository.UserField;
+import com.example.springjwt.repository.UserView;
 import com.example.springjwt.service.UserService;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
+import javax.servlet.http.HttpServletResponse;
 import javax.validation.Valid;
 import javax.validation.constraints.Size;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.net.URI;
 import java.security.Principal;
 import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.springframework.http.HttpHeaders.IF_MATCH;
+import static org.springframework.http.HttpHeaders.IF_NONE_MATCH;
 
 
 @RestController
 @RequiredArgsConstructor
 public class UserController {
 
+    static final String NEXT_CURSOR = "X-Next-Cursor";
+
+    private static final int MAX_PAGE_SIZE = 500;
+
     private final UserService userService;
 
+    private final ObjectMapper objectMapper;
+
+    /**
+     * ETag of a user representation, `"<id>-<version>-<fields>"` with the
+     * selected fields as a hex bitmask
+     **/
+    private static String etag(long id, long version, Set<UserField> fields) {
+
+        int mask = 0;
+
+        for (UserField field : fields)
+            mask |= 1 << field.ordinal();
+
+        return id + "-" + version + "-" + Integer.toHexString(mask);
+    }
+
+    // Version of an If-Match ETag of the user, null when any version matches
+    private static Long versionOf(String ifMatch, long id) {
+
+        if (ifMatch == null || ifMatch.trim().equals("*"))
+            return null;
+
+        String[] parts = ifMatch.trim().replace("W/", "").replace("\"", "").split("-");
+
+        if (parts.length != 3 || !parts[0].equals(String.valueOf(id)))
+            throw new ApiRequestException("If-Match is not an ETag of this user!");
+
+        try {
+            return Long.parseLong(parts[1]);
+
+        } catch (NumberFormatException e) {
+            throw new ApiRequestException("If-Match is not an ETag of this user!");
+        }
+    }
+
+    /**
+     * User with the fields listed in the `fields` parameter, all fields when it is missing.
+     * Conditional requests are checked against the version before the user is read.
+     **/
     @GetMapping("/users/{username}")
-    public ResponseEntity<User> getUser(@PathVariable("username") String username, Principal principal) {
+    public ResponseEntity<UserView> getUser(@PathVariable("username") String username,
+                                            @RequestParam(value = "fields", required = false) String fields,
+                                            Principal principal, WebRequest request) {
+
+        var selected = UserField.parse(fields);
 
-        var user = userService.getUser(username, principal);
+        if (request.getHeader(IF_NONE_MATCH) != null) {
 
-        return ResponseEntity.ok().body(user);
+            var version = userService.getUserVersion(username, principal);
+
+            if (request.checkNotModified(etag(version.getId(), version.getVersion(), selected)))
+                return null;
+        }
+
+        var user = userService.getUser(username, selected, principal);
+
+        return ResponseEntity.ok()
+                .eTag(etag(user.getId(), user.getVersion(), selected))
+                .body(user.select(selected));
     }
 
+    /**
+     * Page of the users ordered by id, a full page returns the id to pass
+     * as `after` for the next page in the X-Next-Cursor header
+     **/
     @GetMapping("/users")
-    public ResponseEntity<List<User>> getUsers() {
-        return ResponseEntity.ok().body(userService.getUsers());
+    public ResponseEntity<List<UserView>> getUsers(@RequestParam(value = "after", defaultValue = "0") long after,
+                                                   @RequestParam(value = "limit", defaultValue = "100") int limit,
+                                                   @RequestParam(value = "fields", required = false) String fields) {
+
+        var selected = UserField.parse(fields);
+
+        if (limit < 1 || limit > MAX_PAGE_SIZE)
+            throw new ApiRequestException("Limit must be between 1 and " + MAX_PAGE_SIZE + "!");
+
+        var users = userService.getUsers(after, limit, selected);
+
+        var response = ResponseEntity.ok();
+
+        if (users.size() == limit)
+            response.header(NEXT_CURSOR, String.valueOf(users.get(users.size() - 1).getId()));
+
+        return response.body(users.stream()
+                .map(user -> user.select(selected))
+                .collect(Collectors.toList()));
+    }
+
+    /**
+     * All users as newline delimited JSON, written while they are read from the database
+     **/
+    @GetMapping(value = "/users", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public void streamUsers(@RequestParam(value = "fields", required = false) String fields,
+                            HttpServletResponse response) throws IOException {
+
+        var selected = UserField.parse(fields);
+
+        response.setContentType(MediaType.APPLICATION_NDJSON_VALUE);
+        response.setCharacterEncoding("UTF-8");
+
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(response.getOutputStream())) {
+
+            generator.setRootValueSeparator(null);
+
+            userService.forEachUser(selected, user -> {
+                try {
+                    generator.writeObject(user.select(selected));
+                    generator.writeRaw('\n');
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        }
     }
 
     @PostMapping("/users")
@@ -42,10 +162,16 @@ public class UserController {
         return ResponseEntity.created(uri).body(userService.saveUser(user));
     }
 
+    /**
+     * Updates the user, an If-Match ETag of a previous read rejects the
+     * update when the user changed since then
+     **/
     @PutMapping("/users")
-    public ResponseEntity<?> updateUser(@Valid @RequestBody User user, Principal principal) {
+    public ResponseEntity<?> updateUser(@Valid @RequestBody User user,
+                                        @RequestHeader(value = IF_MATCH, required = false) String ifMatch,
+                                        Principal principal) {
 
-        userService.updateUser(user, principal);
+        userService.updateUser(user, versionOf(ifMatch, user.getId()), principal);
 
         return ResponseEntity.ok().build();
     }
@@ -0,0 +1,30 @@
+package com.example.springjwt.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+
+/**
+ * Version of an in-memory catalog, bumped with every change of the catalog so
+ * the other nodes can tell that their copy is stale
+ **/
+@Entity
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(name = "catalog_version")
+public class CatalogVersion {
+
+    @Id
+    @Column(name = "name", nullable = false, updatable = false, length = 32)
+    private String name;
+
+    @Column(name = "version", nullable = false)
+    private long version;
+
+}
@@ -0,0 +1,37 @@
+package com.example.springjwt.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+import java.time.LocalDateTime;
+
+/**
+ * Lease of a maintenance job, only the owner runs the job until the lease expires.
+ * Both times are database time, so clock skew between the nodes does not matter.
+ **/
+@Entity
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(name = "maintenance_lease")
+public class MaintenanceLease {
+
+    @Id
+    @Column(name = "name", nullable = false, updatable = false, length = 64)
+    private String name;
+
+    @Column(name = "owner", nullable = false, length = 128)
+    private String owner;
+
+    @Column(name = "acquired_at", nullable = false)
+    private LocalDateTime acquiredAt;
+
+    @Column(name = "expires_at", nullable = false)
+    private LocalDateTime expiresAt;
+
+}
@@ -13,7 +13,10 @@ import java.time.LocalDate;
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
-@Table(name = "refresh_token")
+@Table(name = "refresh_token",
+        indexes = {
+                @Index(name = "idx_refresh_token_family", columnList = "family"),
+                @Index(name = "idx_refresh_token_expiry_date", columnList = "expiry_date")})
 public class RefreshToken {
 
     @Id
@@ -32,5 +35,12 @@ public class RefreshToken {
     @Column(name = "expiry_date", nullable = false)
     private LocalDate expiryDate;
 
+    // First token of the session chain, rotated tokens inherit it
+    @Column(name = "family", nullable = false, length = 32)
+    private String family;
+
+    @Column(name = "consumed", nullable = false)
+    private boolean consumed;
+
 
 }
@@ -1,6 +1,6 @@
 package com.example.springjwt.entity;
 
-import lombok.AllArgsConstructor;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
@@ -10,7 +10,6 @@ import javax.validation.constraints.Size;
 
 
 @NoArgsConstructor
-@AllArgsConstructor
 @Data
 
 @Entity
@@ -27,4 +26,13 @@ public class Role {
     @Column(unique = true, nullable = false, length = 24)
     private String name;
 
+    @Version
+    @JsonIgnore
+    private long version;
+
+    public Role(short id, String name) {
+        this.id = id;
+        this.name = name;
+    }
+
 }
@@ -1,5 +1,6 @@
 package com.example.springjwt.entity;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import lombok.AllArgsConstructor;
 import lombok.Data;
@@ -47,7 +48,7 @@ public class User {
     private String email;
 
     @NotEmpty
-    @Column(length = 60)
+    @Column(length = 100)
     @JsonProperty(access = JsonProperty.Access.WRITE_ONLY)
     private String password;
 
@@ -55,7 +56,13 @@ public class User {
     @CreationTimestamp
     private LocalDate createdDate;
 
-    @ManyToMany(fetch = FetchType.EAGER, cascade = {MERGE, PERSIST, REFRESH, DETACH})
+    // Optimistic lock, changes of the roles of the user also increment it
+    @Version
+    @JsonIgnore
+    private long version;
+
+    // Roles are reference data, users link to the shared roles of the role catalog but never persist them
+    @ManyToMany(fetch = FetchType.EAGER, cascade = {MERGE, REFRESH, DETACH})
     private Collection<Role> roles = new ArrayList<>();
 
     public User(String userName, String fullName, String email, String password) {
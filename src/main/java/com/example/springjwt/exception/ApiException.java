@@ -11,6 +11,10 @@ import java.time.format.DateTimeFormatter;
 @Getter
 public class ApiException {
 
+    static final ZoneId TIMESTAMP_ZONE = ZoneId.of("UTC+3");
+
+    static final DateTimeFormatter TIMESTAMP_FORMAT = DateTimeFormatter.ofPattern("dd.MM.yyyy - HH:mm:ss Z");
+
     private final String message;
 
     private final HttpStatus httpStatus;
@@ -20,11 +24,10 @@ public class ApiException {
     public ApiException(String message, HttpStatus httpStatus) {
         this.message = message;
         this.httpStatus = httpStatus;
-        setTimestamp(ZonedDateTime.now(ZoneId.of("UTC+3")));
+        setTimestamp(ZonedDateTime.now(TIMESTAMP_ZONE));
     }
 
     public void setTimestamp(ZonedDateTime time) {
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("dd.MM.yyyy - HH:mm:ss Z");
-        this.timestamp = formatter.format(time);
+        this.timestamp = TIMESTAMP_FORMAT.format(time);
     }
 }
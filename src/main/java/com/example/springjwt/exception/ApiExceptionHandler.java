@@ -2,6 +2,7 @@ package com.example.springjwt.exception;
 
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 
@@ -10,13 +11,20 @@ import org.springframework.web.bind.annotation.ExceptionHandler;
 public class ApiExceptionHandler {
 
     @ExceptionHandler(value = {ApiRequestException.class})
-    public ResponseEntity<Object> handleApiRequestException(ApiRequestException exception) {
+    public ResponseEntity<byte[]> handleApiRequestException(ApiRequestException exception) {
 
-        HttpStatus badRequest = HttpStatus.BAD_REQUEST;
+        return ErrorResponses.toResponseEntity(HttpStatus.BAD_REQUEST, exception.getMessage());
+    }
+
+    @ExceptionHandler(value = {ObjectOptimisticLockingFailureException.class})
+    public ResponseEntity<byte[]> handleOptimisticLockingFailure(ObjectOptimisticLockingFailureException exception) {
+
+        return ErrorResponses.toResponseEntity(ErrorKind.CONFLICT);
+    }
 
-        ApiException apiException = new ApiException(
-                exception.getMessage(), badRequest);
+    @ExceptionHandler(value = {ServiceBusyException.class})
+    public ResponseEntity<byte[]> handleServiceBusyException(ServiceBusyException exception) {
 
-        return new ResponseEntity<>(apiException, badRequest);
+        return ErrorResponses.toResponseEntity(ErrorKind.SERVICE_BUSY, exception.getRetryAfterSeconds());
     }
 }
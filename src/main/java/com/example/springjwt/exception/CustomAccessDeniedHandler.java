@@ -1,14 +1,11 @@
 package com.example.springjwt.exception;
 
-import org.json.JSONObject;
-import org.springframework.http.HttpStatus;
 import org.springframework.security.access.AccessDeniedException;
 import org.springframework.security.web.access.AccessDeniedHandler;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
-import java.io.PrintWriter;
 
 
 public class CustomAccessDeniedHandler implements AccessDeniedHandler {
@@ -18,20 +15,6 @@ public class CustomAccessDeniedHandler implements AccessDeniedHandler {
     public void handle(HttpServletRequest request, HttpServletResponse response,
                        AccessDeniedException accessDeniedException) throws IOException {
 
-        HttpStatus status = HttpStatus.FORBIDDEN;
-
-        ApiException exception =
-                new ApiException("Access to this resource on the server is denied!", status);
-
-        JSONObject jsonException = new JSONObject(exception);
-
-        PrintWriter out = response.getWriter();
-        response.setStatus(status.value());
-        response.setContentType("application/json");
-        response.setCharacterEncoding("UTF-8");
-        out.print(jsonException);
-
-
-        out.flush();
+        ErrorResponses.write(response, ErrorKind.FORBIDDEN);
     }
 }
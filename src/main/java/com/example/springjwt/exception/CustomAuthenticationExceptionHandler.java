@@ -1,7 +1,6 @@
 package com.example.springjwt.exception;
 
-import org.json.JSONObject;
-import org.springframework.http.HttpStatus;
+import org.springframework.security.authentication.InsufficientAuthenticationException;
 import org.springframework.security.core.AuthenticationException;
 import org.springframework.security.web.AuthenticationEntryPoint;
 
@@ -9,27 +8,25 @@ import javax.servlet.ServletException;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
-import java.io.PrintWriter;
 
+import static org.springframework.http.HttpHeaders.WWW_AUTHENTICATE;
+
+/**
+ * Writes failed signins and anonymous requests to protected routes, the
+ * latter are told to send a bearer token
+ **/
 public class CustomAuthenticationExceptionHandler implements AuthenticationEntryPoint {
     @Override
     public void commence(HttpServletRequest request, HttpServletResponse response,
                          AuthenticationException authException) throws IOException, ServletException {
 
-        HttpStatus status = HttpStatus.UNAUTHORIZED;
-
-        ApiException exception =
-                new ApiException("Invalid username or password!", status);
-
-        JSONObject jsonException = new JSONObject(exception);
-
-        PrintWriter out = response.getWriter();
-        response.setContentType("application/json");
-        response.setStatus(status.value());
-        response.setCharacterEncoding("UTF-8");
-        out.print(jsonException);
+        if (authException instanceof InsufficientAuthenticationException) {
+            response.setHeader(WWW_AUTHENTICATE, "Bearer");
+            ErrorResponses.write(response, ErrorKind.MISSING_TOKEN);
+            return;
+        }
 
-        out.flush();
+        ErrorResponses.write(response, ErrorKind.BAD_CREDENTIALS);
 
     }
 }
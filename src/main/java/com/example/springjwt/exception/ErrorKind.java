@@ -0,0 +1,39 @@
+package com.example.springjwt.exception;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+
+/**
+ * Fixed error responses, their bodies are pre-rendered by ErrorResponses
+ **/
+@Getter
+@RequiredArgsConstructor
+public enum ErrorKind {
+
+    BAD_CREDENTIALS(HttpStatus.UNAUTHORIZED, "Invalid username or password!"),
+
+    // Protected route without a token, the message is the one these requests always got
+    MISSING_TOKEN(HttpStatus.UNAUTHORIZED, "Invalid username or password!"),
+
+    MALFORMED_TOKEN(HttpStatus.UNAUTHORIZED, "Malformed access token!"),
+
+    EXPIRED_TOKEN(HttpStatus.UNAUTHORIZED, "Access token is expired!"),
+
+    UNTRUSTED_ISSUER(HttpStatus.UNAUTHORIZED, "Access token issuer is not trusted!"),
+
+    INVALID_TOKEN(HttpStatus.UNAUTHORIZED, "Invalid access token!"),
+
+    FORBIDDEN(HttpStatus.FORBIDDEN, "Access to this resource on the server is denied!"),
+
+    TOO_MANY_ATTEMPTS(HttpStatus.TOO_MANY_REQUESTS, "Too many signin attempts, please retry later!"),
+
+    SERVICE_BUSY(HttpStatus.SERVICE_UNAVAILABLE, "Server is busy, please retry later!"),
+
+    CONFLICT(HttpStatus.CONFLICT, "Resource was modified by another request, reload it and retry!");
+
+    private final HttpStatus status;
+
+    private final String message;
+
+}
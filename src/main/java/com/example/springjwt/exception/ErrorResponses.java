@@ -0,0 +1,151 @@
+package com.example.springjwt.exception;
+
+import com.fasterxml.jackson.core.io.JsonStringEncoder;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.EnumMap;
+import java.util.Map;
+
+import static org.springframework.http.HttpHeaders.RETRY_AFTER;
+
+/**
+ * Registry of pre-rendered ApiException bodies of the fixed ErrorKinds.
+ * Every body is kept as the bytes before and after the timestamp value, the
+ * timestamp is rendered once per second and shared, so a rejection only
+ * copies bytes. Other messages may carry request input, they are rendered
+ * per response and never cached.
+ **/
+public final class ErrorResponses {
+
+    private static final MediaType JSON_UTF8 = new MediaType(MediaType.APPLICATION_JSON, StandardCharsets.UTF_8);
+
+    private static final Map<ErrorKind, Rendered> KINDS = new EnumMap<>(ErrorKind.class);
+
+    private static volatile Timestamp timestamp = new Timestamp(-1, new byte[0]);
+
+    static {
+        for (ErrorKind kind : ErrorKind.values())
+            KINDS.put(kind, new Rendered(kind.getStatus(), kind.getMessage()));
+    }
+
+    private ErrorResponses() {
+    }
+
+    public static void write(HttpServletResponse response, ErrorKind kind) throws IOException {
+
+        Rendered rendered = KINDS.get(kind);
+
+        byte[] time = timestamp();
+
+        response.setStatus(rendered.status.value());
+        response.setContentType("application/json");
+        response.setCharacterEncoding("UTF-8");
+        response.setContentLength(rendered.length(time));
+
+        ServletOutputStream out = response.getOutputStream();
+        out.write(rendered.head);
+        out.write(time);
+        out.write(rendered.tail);
+        out.flush();
+    }
+
+    public static void write(HttpServletResponse response, ErrorKind kind, long retryAfterSeconds) throws IOException {
+
+        response.setHeader(RETRY_AFTER, String.valueOf(retryAfterSeconds));
+
+        write(response, kind);
+    }
+
+    public static ResponseEntity<byte[]> toResponseEntity(ErrorKind kind) {
+        return toResponseEntity(KINDS.get(kind), new HttpHeaders());
+    }
+
+    public static ResponseEntity<byte[]> toResponseEntity(ErrorKind kind, long retryAfterSeconds) {
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(RETRY_AFTER, String.valueOf(retryAfterSeconds));
+
+        return toResponseEntity(KINDS.get(kind), headers);
+    }
+
+    public static ResponseEntity<byte[]> toResponseEntity(HttpStatus status, String message) {
+        return toResponseEntity(new Rendered(status, message), new HttpHeaders());
+    }
+
+    private static ResponseEntity<byte[]> toResponseEntity(Rendered rendered, HttpHeaders headers) {
+
+        byte[] time = timestamp();
+
+        byte[] body = new byte[rendered.length(time)];
+
+        System.arraycopy(rendered.head, 0, body, 0, rendered.head.length);
+        System.arraycopy(time, 0, body, rendered.head.length, time.length);
+        System.arraycopy(rendered.tail, 0, body, rendered.head.length + time.length, rendered.tail.length);
+
+        headers.setContentType(JSON_UTF8);
+
+        return new ResponseEntity<>(body, headers, rendered.status);
+    }
+
+    private static byte[] timestamp() {
+
+        long second = System.currentTimeMillis() / 1000;
+
+        Timestamp current = timestamp;
+
+        if (current.second != second) {
+
+            String formatted = ApiException.TIMESTAMP_FORMAT
+                    .format(Instant.ofEpochSecond(second).atZone(ApiException.TIMESTAMP_ZONE));
+
+            current = new Timestamp(second, formatted.getBytes(StandardCharsets.UTF_8));
+            timestamp = current;
+        }
+
+        return current.bytes;
+    }
+
+    private static class Timestamp {
+
+        private final long second;
+
+        private final byte[] bytes;
+
+        Timestamp(long second, byte[] bytes) {
+            this.second = second;
+            this.bytes = bytes;
+        }
+    }
+
+    // Same fields as the serialized ApiException: message, httpStatus and timestamp
+    private static class Rendered {
+
+        private final HttpStatus status;
+
+        private final byte[] head;
+
+        private final byte[] tail;
+
+        Rendered(HttpStatus status, String message) {
+
+            String quoted = new String(JsonStringEncoder.getInstance().quoteAsString(message));
+
+            this.status = status;
+            this.head = ("{\"message\":\"" + quoted + "\",\"httpStatus\":\"" + status.name() + "\",\"timestamp\":\"")
+                    .getBytes(StandardCharsets.UTF_8);
+            this.tail = "\"}".getBytes(StandardCharsets.UTF_8);
+        }
+
+        int length(byte[] time) {
+            return head.length + time.length + tail.length;
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package com.example.springjwt.exception;
+
+import lombok.Getter;
+
+/**
+ * Thrown when a request can not be admitted to a saturated resource,
+ * rendered as 503 with a Retry-After header
+ **/
+public class ServiceBusyException extends RuntimeException {
+
+    @Getter
+    private final long retryAfterSeconds;
+
+    public ServiceBusyException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+
+}
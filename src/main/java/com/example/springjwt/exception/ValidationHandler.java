@@ -6,9 +6,11 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.validation.FieldError;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.servlet.mvc.method.annotation.ResponseEntityExceptionHandler;
 
+import javax.validation.ConstraintViolationException;
 import java.util.HashMap;
 
 @ControllerAdvice
@@ -35,4 +37,21 @@ public class ValidationHandler extends ResponseEntityExceptionHandler {
 
         return new ResponseEntity<>(validationException, validationException.getHttpStatus());
     }
+
+    /**
+     * Same body for values validated by hand, as the auth endpoints
+     * which read their body without data binding
+     **/
+    @ExceptionHandler(value = {ConstraintViolationException.class})
+    public ResponseEntity<Object> handleConstraintViolation(ConstraintViolationException ex) {
+
+        HashMap<Object, Object> errors = new HashMap<>();
+
+        ex.getConstraintViolations()
+                .forEach(violation -> errors.put(violation.getPropertyPath().toString(), violation.getMessage()));
+
+        ValidationException validationException = new ValidationException("Validation Error", errors);
+
+        return new ResponseEntity<>(validationException, validationException.getHttpStatus());
+    }
 }
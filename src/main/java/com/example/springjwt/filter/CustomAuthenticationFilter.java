@@ -1,7 +1,15 @@
 package com.example.springjwt.filter;
 
+import com.example.springjwt.exception.ErrorKind;
+import com.example.springjwt.exception.ErrorResponses;
+import com.example.springjwt.exception.ServiceBusyException;
+import com.example.springjwt.security.LoginAttemptLimiter;
+import com.example.springjwt.security.PasswordAuthenticator;
+import com.example.springjwt.security.PasswordAuthenticator.Verified;
+import com.example.springjwt.security.PasswordHashingExecutor;
 import com.example.springjwt.service.TokenService;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.example.springjwt.util.AuthJsonCodec;
+import com.example.springjwt.util.TokenPair;
 import org.springframework.security.authentication.AuthenticationServiceException;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
@@ -9,44 +17,219 @@ import org.springframework.security.core.AuthenticationException;
 import org.springframework.security.web.authentication.AbstractAuthenticationProcessingFilter;
 import org.springframework.security.web.util.matcher.AntPathRequestMatcher;
 
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
 import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
-import java.util.Map;
-
-import static org.springframework.http.MediaType.APPLICATION_JSON_VALUE;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 
 public class CustomAuthenticationFilter extends AbstractAuthenticationProcessingFilter {
 
     private final TokenService tokenService;
 
-    public CustomAuthenticationFilter(TokenService tokenService) {
+    private final PasswordAuthenticator authenticator;
+
+    private final PasswordHashingExecutor hashingExecutor;
+
+    private final LoginAttemptLimiter attemptLimiter;
+
+    private final AuthJsonCodec jsonCodec;
+
+    public CustomAuthenticationFilter(TokenService tokenService, PasswordAuthenticator authenticator,
+                                      PasswordHashingExecutor hashingExecutor, LoginAttemptLimiter attemptLimiter,
+                                      AuthJsonCodec jsonCodec) {
         super(new AntPathRequestMatcher("/auth/signin", "POST"));
         this.tokenService = tokenService;
+        this.authenticator = authenticator;
+        this.hashingExecutor = hashingExecutor;
+        this.attemptLimiter = attemptLimiter;
+        this.jsonCodec = jsonCodec;
     }
 
+    /**
+     * The user is loaded on the request thread, the password comparison runs
+     * on the hashing executor. The request thread is released while it is
+     * pending and the response is written afterwards on a container thread,
+     * or as SERVICE_BUSY when the async request times out first.
+     **/
     @Override
-    public Authentication attemptAuthentication(HttpServletRequest request, HttpServletResponse response)
-            throws AuthenticationException {
+    public void doFilter(ServletRequest req, ServletResponse res, FilterChain chain)
+            throws IOException, ServletException {
+
+        HttpServletRequest request = (HttpServletRequest) req;
+        HttpServletResponse response = (HttpServletResponse) res;
+
+        if (!requiresAuthentication(request, response)) {
+            chain.doFilter(request, response);
+            return;
+        }
 
-        String username, password;
+        UsernamePasswordAuthenticationToken authRequest;
 
         try {
-            Map<String, String> requestMap = new ObjectMapper().readValue(request.getInputStream(), Map.class);
-            username = requestMap.get("username");
-            password = requestMap.get("password");
+            authRequest = readCredentials(request);
+        } catch (AuthenticationException e) {
+            unsuccessfulAuthentication(request, response, e);
+            return;
+        }
+
+        long retryAfter = attemptLimiter.tryAcquire(authRequest.getName(), request.getRemoteAddr());
+
+        if (retryAfter > 0) {
+            ErrorResponses.write(response, ErrorKind.TOO_MANY_ATTEMPTS, retryAfter);
+            return;
+        }
+
+        CompletableFuture<Verified> verification;
+
+        try {
+            verification = authenticator.verify(authRequest);
+        } catch (RuntimeException e) {
+            complete(request, response, chain, null, e);
+            return;
+        }
+
+        if (!request.isAsyncSupported()) {
+            try {
+                complete(request, response, chain, verification.join(), null);
+            } catch (CompletionException e) {
+                complete(request, response, chain, null, e);
+            }
+            return;
+        }
 
+        AsyncContext asyncContext = request.startAsync(request, response);
+        asyncContext.setTimeout(hashingExecutor.getTimeoutMillis());
+
+        // Claimed by whichever writes the response, the started task or the timeout
+        AtomicBoolean finished = new AtomicBoolean();
+
+        // Counted down once the started task completed the request
+        CountDownLatch written = new CountDownLatch(1);
+
+        asyncContext.addListener(new AsyncListener() {
+
+            @Override
+            public void onTimeout(AsyncEvent event) throws IOException {
+
+                verification.cancel(false);
+
+                if (finished.compareAndSet(false, true)) {
+                    ErrorResponses.write(response, ErrorKind.SERVICE_BUSY, hashingExecutor.getRetryAfterSeconds());
+                    asyncContext.complete();
+                    return;
+                }
+
+                // The started task is writing the response, returning before it completed
+                // the request would let the container error-dispatch into the same response
+                try {
+                    if (!written.await(hashingExecutor.getTimeoutMillis(), TimeUnit.MILLISECONDS))
+                        logger.warn("Signin response was not written in time after the async timeout");
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+
+            @Override
+            public void onError(AsyncEvent event) {
+
+                verification.cancel(false);
+
+                if (finished.compareAndSet(false, true))
+                    asyncContext.complete();
+            }
+
+            @Override
+            public void onComplete(AsyncEvent event) {
+            }
+
+            @Override
+            public void onStartAsync(AsyncEvent event) {
+            }
+        });
+
+        verification.whenComplete((result, error) -> {
+
+            if (finished.get())
+                return;
+
+            try {
+                asyncContext.start(() -> {
+
+                    // The timeout may have answered while this task was queued
+                    if (!finished.compareAndSet(false, true))
+                        return;
+
+                    try {
+                        complete(request, response, chain, result, error);
+                    } catch (IOException | ServletException e) {
+                        logger.error("Could not write the signin response", e);
+                    } finally {
+                        asyncContext.complete();
+                        written.countDown();
+                    }
+                });
+            } catch (IllegalStateException e) {
+                // Completed by the timeout meanwhile
+            }
+        });
+    }
+
+    private void complete(HttpServletRequest request, HttpServletResponse response, FilterChain chain,
+                          Verified result, Throwable error) throws IOException, ServletException {
+
+        if (error == null) {
+            try {
+                successfulAuthentication(request, response, chain, authenticator.authenticated(result));
+                return;
+            } catch (RuntimeException e) {
+                error = e;
+            }
+        }
+
+        RuntimeException cause = PasswordHashingExecutor.unwrap(error);
+
+        if (cause instanceof AuthenticationException)
+            unsuccessfulAuthentication(request, response, (AuthenticationException) cause);
+
+        else if (cause instanceof ServiceBusyException)
+            ErrorResponses.write(response, ErrorKind.SERVICE_BUSY, ((ServiceBusyException) cause).getRetryAfterSeconds());
+
+        else
+            unsuccessfulAuthentication(request, response,
+                    new AuthenticationServiceException(cause.getMessage(), cause));
+    }
+
+    private UsernamePasswordAuthenticationToken readCredentials(HttpServletRequest request) {
+
+        String[] credentials;
+
+        try {
+            credentials = jsonCodec.readCredentials(request);
 
         } catch (IOException e) {
             throw new AuthenticationServiceException(e.getMessage(), e);
         }
 
-        UsernamePasswordAuthenticationToken authRequest = new UsernamePasswordAuthenticationToken(
-                username, password);
+        return new UsernamePasswordAuthenticationToken(credentials[0], credentials[1]);
+    }
+
+    @Override
+    public Authentication attemptAuthentication(HttpServletRequest request, HttpServletResponse response)
+            throws AuthenticationException {
 
-        return this.getAuthenticationManager().authenticate(authRequest);
+        return this.getAuthenticationManager().authenticate(readCredentials(request));
     }
 
 
@@ -54,13 +237,11 @@ public class CustomAuthenticationFilter extends AbstractAuthenticationProcessing
     protected void successfulAuthentication(HttpServletRequest request, HttpServletResponse response, FilterChain chain,
                                             Authentication authResult) throws IOException {
 
-        Map<String, String> tokens = tokenService.createTokens(authResult.getName());
+        // The user loaded for the password check, token issuance needs nothing else
+        TokenPair tokens = tokenService.createTokens(authResult);
 
-        response.setContentType(APPLICATION_JSON_VALUE);
-
-        new ObjectMapper().writeValue(response.getOutputStream(), tokens);
+        jsonCodec.writeTokens(tokens, response);
 
     }
 
-
 }
@@ -1,8 +1,13 @@
 package com.example.springjwt.filter;
 
+import com.example.springjwt.exception.ErrorKind;
+import com.example.springjwt.exception.ErrorResponses;
+import com.example.springjwt.security.RouteRule;
+import com.example.springjwt.security.RouteTrie;
 import com.example.springjwt.service.TokenService;
+import com.example.springjwt.util.TokenStatus;
+import com.example.springjwt.util.TokenVerification;
 import lombok.RequiredArgsConstructor;
-import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.filter.OncePerRequestFilter;
 
@@ -19,11 +24,16 @@ public class CustomAuthorizationFilter extends OncePerRequestFilter {
 
     private final TokenService tokenService;
 
+    private final RouteTrie routes;
+
     @Override
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
             throws ServletException, IOException {
 
-        if (request.getServletPath().equals("/login"))
+        RouteRule route = routes.match(request);
+
+        // The authentication would never be looked at on a public route
+        if (route != null && route.isPublic())
             filterChain.doFilter(request, response);
 
         else {
@@ -33,9 +43,15 @@ public class CustomAuthorizationFilter extends OncePerRequestFilter {
 
                 String token = authHeader.substring(7);
 
-                UsernamePasswordAuthenticationToken authToken = tokenService.getAuthToken(token);
+                TokenVerification verification = tokenService.verifyAccessToken(token);
+
+                // Rejected here, a bad token never reaches the entry point or the controllers
+                if (!verification.isValid()) {
+                    ErrorResponses.write(response, errorKind(verification.getStatus()));
+                    return;
+                }
 
-                SecurityContextHolder.getContext().setAuthentication(authToken);
+                SecurityContextHolder.getContext().setAuthentication(verification.getAuthToken());
 
                 filterChain.doFilter(request, response);
 
@@ -47,4 +63,18 @@ public class CustomAuthorizationFilter extends OncePerRequestFilter {
         }
 
     }
+
+    private static ErrorKind errorKind(TokenStatus status) {
+
+        switch (status) {
+            case MALFORMED:
+                return ErrorKind.MALFORMED_TOKEN;
+            case EXPIRED:
+                return ErrorKind.EXPIRED_TOKEN;
+            case INVALID_ISSUER:
+                return ErrorKind.UNTRUSTED_ISSUER;
+            default:
+                return ErrorKind.INVALID_TOKEN;
+        }
+    }
 }
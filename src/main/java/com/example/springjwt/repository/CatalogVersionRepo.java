@@ -0,0 +1,13 @@
+package com.example.springjwt.repository;
+
+import com.example.springjwt.entity.CatalogVersion;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+public interface CatalogVersionRepo extends JpaRepository<CatalogVersion, String>, CatalogVersionRepoCustom {
+
+    @Query("select c.version from CatalogVersion c where c.name = :name")
+    Long findVersion(@Param("name") String name);
+
+}
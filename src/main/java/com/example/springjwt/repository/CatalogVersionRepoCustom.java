@@ -0,0 +1,14 @@
+package com.example.springjwt.repository;
+
+/**
+ * Catalog version statements, they run in the transaction of the catalog change
+ **/
+public interface CatalogVersionRepoCustom {
+
+    /**
+     * Bumps the version of the catalog, the row is created on the first change.
+     * Returns the new version.
+     **/
+    long increment(String name);
+
+}
@@ -0,0 +1,30 @@
+package com.example.springjwt.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+@RequiredArgsConstructor
+public class CatalogVersionRepoCustomImpl implements CatalogVersionRepoCustom {
+
+    private static final String INCREMENT = "UPDATE catalog_version SET version = version + 1 WHERE name = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public long increment(String name) {
+
+        if (jdbcTemplate.update(INCREMENT, name) == 0) {
+            try {
+                jdbcTemplate.update("INSERT INTO catalog_version (name, version) VALUES (?, 1)", name);
+
+            } catch (DuplicateKeyException e) {
+                // Created by another node meanwhile
+                jdbcTemplate.update(INCREMENT, name);
+            }
+        }
+
+        // The row stays locked by the update until the transaction ends
+        return jdbcTemplate.queryForObject("SELECT version FROM catalog_version WHERE name = ?", Long.class, name);
+    }
+}
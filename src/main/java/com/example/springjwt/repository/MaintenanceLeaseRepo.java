@@ -0,0 +1,7 @@
+package com.example.springjwt.repository;
+
+import com.example.springjwt.entity.MaintenanceLease;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface MaintenanceLeaseRepo extends JpaRepository<MaintenanceLease, String>, MaintenanceLeaseRepoCustom {
+}
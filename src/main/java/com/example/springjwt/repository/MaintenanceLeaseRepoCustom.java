@@ -0,0 +1,25 @@
+package com.example.springjwt.repository;
+
+/**
+ * Lease statements, each of them commits on its own.
+ * Expiry times are computed from the database clock.
+ **/
+public interface MaintenanceLeaseRepoCustom {
+
+    /**
+     * Takes the lease for ttlMillis when it is free, expired or already owned by the owner
+     **/
+    boolean acquire(String name, String owner, long ttlMillis);
+
+    /**
+     * Extends the lease by ttlMillis, returns false when the owner lost it
+     * meanwhile or it already expired
+     **/
+    boolean extend(String name, String owner, long ttlMillis);
+
+    /**
+     * Keeps the lease until holdMillis after its acquisition, or frees it now when that has passed
+     **/
+    boolean release(String name, String owner, long holdMillis);
+
+}
@@ -0,0 +1,52 @@
+package com.example.springjwt.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+@RequiredArgsConstructor
+public class MaintenanceLeaseRepoCustomImpl implements MaintenanceLeaseRepoCustom {
+
+    // MICROSECOND is the finest unit both H2 and MySQL accept
+    private static final String EXPIRY = "TIMESTAMPADD(MICROSECOND, ?, CURRENT_TIMESTAMP)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public boolean acquire(String name, String owner, long ttlMillis) {
+
+        int updated = jdbcTemplate.update("UPDATE maintenance_lease " +
+                        "SET owner = ?, acquired_at = CURRENT_TIMESTAMP, expires_at = " + EXPIRY + " " +
+                        "WHERE name = ? AND (owner = ? OR expires_at < CURRENT_TIMESTAMP)",
+                owner, ttlMillis * 1000, name, owner);
+
+        if (updated > 0)
+            return true;
+
+        try {
+            jdbcTemplate.update("INSERT INTO maintenance_lease (name, owner, acquired_at, expires_at) " +
+                    "VALUES (?, ?, CURRENT_TIMESTAMP, " + EXPIRY + ")", name, owner, ttlMillis * 1000);
+
+            return true;
+
+        } catch (DuplicateKeyException e) {
+            // Held by another node
+            return false;
+        }
+    }
+
+    @Override
+    public boolean extend(String name, String owner, long ttlMillis) {
+        return jdbcTemplate.update("UPDATE maintenance_lease SET expires_at = " + EXPIRY + " " +
+                        "WHERE name = ? AND owner = ? AND expires_at >= CURRENT_TIMESTAMP",
+                ttlMillis * 1000, name, owner) > 0;
+    }
+
+    @Override
+    public boolean release(String name, String owner, long holdMillis) {
+        return jdbcTemplate.update("UPDATE maintenance_lease " +
+                        "SET expires_at = GREATEST(TIMESTAMPADD(MICROSECOND, ?, acquired_at), CURRENT_TIMESTAMP) " +
+                        "WHERE name = ? AND owner = ?",
+                holdMillis * 1000, name, owner) > 0;
+    }
+}
@@ -0,0 +1,17 @@
+package com.example.springjwt.repository;
+
+import java.time.LocalDate;
+
+/**
+ * Session chain and state of a refresh token with the credentials of its
+ * owner, one row per role of the owner. Read without loading the user.
+ **/
+public interface RefreshTokenOwner extends UserCredentials {
+
+    String getFamily();
+
+    LocalDate getExpiryDate();
+
+    boolean isConsumed();
+
+}
@@ -2,17 +2,40 @@ package com.example.springjwt.repository;
 
 import com.example.springjwt.entity.RefreshToken;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import java.time.LocalDate;
+import java.util.List;
 
 
-public interface RefreshTokenRepo extends JpaRepository<RefreshToken, Long> {
+public interface RefreshTokenRepo extends JpaRepository<RefreshToken, Long>, RefreshTokenRepoCustom {
 
     RefreshToken findByToken(String token);
 
-    boolean existsRefreshTokenByToken(String token);
-
-    void deleteAllByExpiryDateBefore(LocalDate expiryDate);
+    @Query("select u.id as id, u.userName as userName, u.password as password, " +
+            "r.id as roleId, r.name as roleName, t.family as family, t.expiryDate as expiryDate, " +
+            "t.consumed as consumed from RefreshToken t join t.user u left join u.roles r where t.token = :token")
+    List<RefreshTokenOwner> findOwnerByToken(@Param("token") String token);
+
+    /**
+     * Consumes an unexpired token once. The consumed token is kept until
+     * keepUntil to detect its reuse, the reaper deletes it afterwards.
+     **/
+    @Modifying
+    @Query("update RefreshToken t set t.consumed = true, t.expiryDate = :keepUntil " +
+            "where t.token = :token and t.consumed = false and t.expiryDate >= :today")
+    int consume(@Param("token") String token, @Param("today") LocalDate today,
+                @Param("keepUntil") LocalDate keepUntil);
+
+    @Modifying
+    @Query("delete from RefreshToken t where t.token = :token and t.consumed = false")
+    int deleteUnconsumedByToken(@Param("token") String token);
+
+    @Modifying
+    @Query("delete from RefreshToken t where t.family = :family")
+    int deleteAllByFamily(@Param("family") String family);
 
 
 }
@@ -0,0 +1,22 @@
+package com.example.springjwt.repository;
+
+import java.time.LocalDate;
+
+/**
+ * Plain JDBC statements for refresh tokens. They run on the connection of the
+ * current transaction, but a failing statement does not mark it rollback-only.
+ **/
+public interface RefreshTokenRepoCustom {
+
+    /**
+     * Inserts a refresh token, throws DuplicateKeyException when the token already exists
+     **/
+    void insert(String token, String family, long userId, LocalDate expiryDate);
+
+    /**
+     * Deletes at most limit tokens which expired before the given date,
+     * returns the count of deleted tokens
+     **/
+    int deleteExpiredBefore(LocalDate expiryDate, int limit);
+
+}
@@ -0,0 +1,73 @@
+package com.example.springjwt.repository;
+
+import com.example.springjwt.entity.RefreshToken;
+import lombok.RequiredArgsConstructor;
+import org.hibernate.StatelessSession;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.persistence.EntityManagerFactory;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+@RequiredArgsConstructor
+public class RefreshTokenRepoCustomImpl implements RefreshTokenRepoCustom {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final EntityManagerFactory entityManagerFactory;
+
+    @Override
+    public void insert(String token, String family, long userId, LocalDate expiryDate) {
+        jdbcTemplate.update("INSERT INTO refresh_token (id, token, family, consumed, user_id, expiry_date) " +
+                        "VALUES (?, ?, ?, FALSE, ?, ?)",
+                nextId(), token, family, userId, Date.valueOf(expiryDate));
+    }
+
+    /**
+     * Deletes the batch as a range of the (expiry_date, id) order, up to its
+     * last row. DELETE ... LIMIT without ORDER BY picks arbitrary rows and is
+     * unsafe for statement-based replication, and H2 has no ORDER BY in DELETE.
+     **/
+    @Override
+    public int deleteExpiredBefore(LocalDate expiryDate, int limit) {
+
+        Date before = Date.valueOf(expiryDate);
+
+        List<Map<String, Object>> last = jdbcTemplate.queryForList("SELECT expiry_date, id FROM refresh_token " +
+                "WHERE expiry_date < ? ORDER BY expiry_date, id LIMIT 1 OFFSET ?", before, limit - 1);
+
+        if (last.isEmpty())
+            return jdbcTemplate.update("DELETE FROM refresh_token WHERE expiry_date < ?", before);
+
+        Object lastDate = last.get(0).get("expiry_date");
+        Object lastId = last.get(0).get("id");
+
+        return jdbcTemplate.update("DELETE FROM refresh_token WHERE expiry_date < ? " +
+                        "AND (expiry_date < ? OR (expiry_date = ? AND id <= ?))",
+                before, lastDate, lastDate, lastId);
+    }
+
+    // Ids come from the generator of the entity, the same one rows persisted through JPA use
+    private long nextId() {
+
+        SessionFactoryImplementor sessionFactory = entityManagerFactory.unwrap(SessionFactoryImplementor.class);
+
+        return jdbcTemplate.execute((ConnectionCallback<Long>) connection -> {
+
+            try (StatelessSession session = sessionFactory.withStatelessOptions()
+                    .connection(connection)
+                    .openStatelessSession()) {
+
+                return ((Number) sessionFactory.getMetamodel()
+                        .entityPersister(RefreshToken.class)
+                        .getIdentifierGenerator()
+                        .generate((SharedSessionContractImplementor) session, null)).longValue();
+            }
+        });
+    }
+}
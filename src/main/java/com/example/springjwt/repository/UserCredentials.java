@@ -0,0 +1,20 @@
+package com.example.springjwt.repository;
+
+/**
+ * One row per role of a user with what signin and token issuance need,
+ * read without loading the user entity. The role columns are null when
+ * the user has no roles.
+ **/
+public interface UserCredentials {
+
+    long getId();
+
+    String getUserName();
+
+    String getPassword();
+
+    Short getRoleId();
+
+    String getRoleName();
+
+}
@@ -0,0 +1,66 @@
+package com.example.springjwt.repository;
+
+import com.example.springjwt.exception.ApiRequestException;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Fields of a user which the user endpoints select with the `fields`
+ * parameter, each field is read with its own column of the projection
+ **/
+public enum UserField {
+
+    ID("id", "u.id"),
+    USER_NAME("userName", "u.userName"),
+    FULL_NAME("fullName", "u.fullName"),
+    EMAIL("email", "u.email"),
+    CREATED_DATE("createdDate", "u.createdDate"),
+
+    // Joined only when it is selected
+    ROLES("roles", null);
+
+    private final String name;
+
+    private final String path;
+
+    UserField(String name, String path) {
+        this.name = name;
+        this.path = path;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    String getPath() {
+        return path;
+    }
+
+    /**
+     * Parses a comma separated list of field names, all fields when it is empty
+     **/
+    public static Set<UserField> parse(String fields) {
+
+        if (fields == null || fields.isBlank())
+            return EnumSet.allOf(UserField.class);
+
+        Set<UserField> selected = EnumSet.noneOf(UserField.class);
+
+        for (String name : fields.split(",")) {
+            selected.add(of(name.trim()));
+        }
+
+        return selected;
+    }
+
+    private static UserField of(String name) {
+
+        for (UserField field : values()) {
+            if (field.name.equals(name))
+                return field;
+        }
+
+        throw new ApiRequestException("Unknown field: " + name + "!");
+    }
+}
@@ -1,13 +1,37 @@
 package com.example.springjwt.repository;
 
 import com.example.springjwt.entity.User;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.util.List;
 
-public interface UserRepo extends JpaRepository<User, Long> {
+
+public interface UserRepo extends JpaRepository<User, Long>, UserRepoCustom {
 
     User findByUserName(String name);
 
     User findByEmail(String email);
 
+    @Query("select u.id as id, u.userName as userName, u.password as password, " +
+            "r.id as roleId, r.name as roleName from User u left join u.roles r where u.userName = :userName")
+    List<UserCredentials> findCredentialsByUserName(@Param("userName") String userName);
+
+    @Query("select u.id as id, u.userName as userName, u.version as version from User u where u.userName = :userName")
+    UserVersion findVersionByUserName(@Param("userName") String userName);
+
+    /**
+     * Ids of a keyset page, the users of the page are fetched by these ids
+     * so the limit applies to users rather than to joined role rows
+     **/
+    @Query("select u.id from User u where u.id > :after order by u.id")
+    List<Long> findIdsAfter(@Param("after") long after, Pageable pageable);
+
+    @Modifying
+    @Query("update User u set u.password = :password where u.userName = :userName")
+    int updatePassword(@Param("userName") String userName, @Param("password") String password);
+
 }
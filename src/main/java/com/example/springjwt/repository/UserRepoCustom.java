@@ -0,0 +1,30 @@
+package com.example.springjwt.repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Projection queries of the user endpoints, they select only the columns of
+ * the requested fields and join the roles only when they are requested.
+ **/
+public interface UserRepoCustom {
+
+    /**
+     * Views of the users with the given ids, ordered by id
+     **/
+    List<UserView> findViewsByIdIn(Collection<Long> ids, Set<UserField> fields);
+
+    /**
+     * Returns the view of the user or null when there is no such user
+     **/
+    UserView findViewByUserName(String userName, Set<UserField> fields);
+
+    /**
+     * Passes the view of every user in id order to the action while the rows
+     * are read from a forward-only cursor, it must run inside a transaction
+     **/
+    void forEachView(Set<UserField> fields, Consumer<UserView> action);
+
+}
@@ -0,0 +1,160 @@
+package com.example.springjwt.repository;
+
+import com.example.springjwt.repository.UserView.RoleView;
+import lombok.RequiredArgsConstructor;
+import org.hibernate.dialect.MySQLDialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+
+import javax.persistence.EntityManager;
+import javax.persistence.QueryTimeoutException;
+import javax.persistence.Tuple;
+import javax.persistence.TypedQuery;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+import static com.example.springjwt.repository.UserField.*;
+import static com.example.springjwt.util.SecurityConstant.USER_STREAM_TIMEOUT_SECONDS;
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.QueryHints.SPEC_HINT_TIMEOUT;
+
+@RequiredArgsConstructor
+public class UserRepoCustomImpl implements UserRepoCustom {
+
+    private static final int STREAM_FETCH_SIZE = 256;
+
+    private final EntityManager entityManager;
+
+    @Override
+    public List<UserView> findViewsByIdIn(Collection<Long> ids, Set<UserField> fields) {
+
+        List<UserView> views = new ArrayList<>(ids.size());
+
+        if (ids.isEmpty())
+            return views;
+
+        List<Tuple> rows = query(fields, "where u.id in :ids")
+                .setParameter("ids", ids)
+                .getResultList();
+
+        assemble(rows.iterator(), fields, views::add);
+
+        return views;
+    }
+
+    @Override
+    public UserView findViewByUserName(String userName, Set<UserField> fields) {
+
+        List<UserView> views = new ArrayList<>(1);
+
+        List<Tuple> rows = query(fields, "where u.userName = :userName")
+                .setParameter("userName", userName)
+                .getResultList();
+
+        assemble(rows.iterator(), fields, views::add);
+
+        return views.isEmpty() ? null : views.get(0);
+    }
+
+    /**
+     * Reads the users through a forward-only cursor. H2, PostgreSQL and Oracle
+     * fetch STREAM_FETCH_SIZE rows at a time, PostgreSQL only inside a
+     * transaction, as here. MySQL and MariaDB ignore a positive fetch size and
+     * buffer the whole result, they stream row by row with Integer.MIN_VALUE.
+     * The transaction and its connection stay open while the caller writes
+     * the users, so the stream fails with a QueryTimeoutException after
+     * USER_STREAM_TIMEOUT_SECONDS, also when a slow client holds it up.
+     **/
+    @Override
+    public void forEachView(Set<UserField> fields, Consumer<UserView> action) {
+
+        long deadline = System.currentTimeMillis() + USER_STREAM_TIMEOUT_SECONDS * 1000L;
+
+        try (Stream<Tuple> rows = query(fields, "")
+                .setHint(HINT_FETCH_SIZE, streamFetchSize())
+                .setHint(SPEC_HINT_TIMEOUT, USER_STREAM_TIMEOUT_SECONDS * 1000)
+                .getResultStream()) {
+
+            assemble(rows.iterator(), fields, view -> {
+
+                if (System.currentTimeMillis() > deadline)
+                    throw new QueryTimeoutException("User stream exceeded " + USER_STREAM_TIMEOUT_SECONDS + " seconds");
+
+                action.accept(view);
+            });
+        }
+    }
+
+    private int streamFetchSize() {
+
+        var dialect = entityManager.getEntityManagerFactory()
+                .unwrap(SessionFactoryImplementor.class)
+                .getJdbcServices()
+                .getDialect();
+
+        return dialect instanceof MySQLDialect ? Integer.MIN_VALUE : STREAM_FETCH_SIZE;
+    }
+
+    // One row per user, or one row per role of a user when the roles are selected
+    private TypedQuery<Tuple> query(Set<UserField> fields, String where) {
+
+        StringBuilder jpql = new StringBuilder("select u.id as id, u.userName as userName, u.version as version");
+
+        for (UserField field : fields) {
+            if (field.getPath() != null && field != ID && field != USER_NAME)
+                jpql.append(", ").append(field.getPath()).append(" as ").append(field.getName());
+        }
+
+        if (fields.contains(ROLES))
+            jpql.append(", r.id as roleId, r.name as roleName from User u left join u.roles r ");
+        else
+            jpql.append(" from User u ");
+
+        jpql.append(where).append(fields.contains(ROLES) ? " order by u.id, r.id" : " order by u.id");
+
+        return entityManager.createQuery(jpql.toString(), Tuple.class);
+    }
+
+    // Rows of the same user are adjacent, only the user being assembled is kept
+    private static void assemble(Iterator<Tuple> rows, Set<UserField> fields, Consumer<UserView> action) {
+
+        Tuple user = null;
+        List<RoleView> roles = null;
+
+        while (rows.hasNext()) {
+
+            Tuple row = rows.next();
+
+            if (user == null || !user.get("id").equals(row.get("id"))) {
+
+                if (user != null)
+                    action.accept(view(user, fields, roles));
+
+                user = row;
+                roles = fields.contains(ROLES) ? new ArrayList<>() : null;
+            }
+
+            if (roles != null && row.get("roleId") != null)
+                roles.add(new RoleView(row.get("roleId", Short.class), row.get("roleName", String.class)));
+        }
+
+        if (user != null)
+            action.accept(view(user, fields, roles));
+    }
+
+    private static UserView view(Tuple user, Set<UserField> fields, List<RoleView> roles) {
+        return new UserView(
+                user.get("id", Long.class),
+                user.get("userName", String.class),
+                user.get("version", Long.class),
+                fields.contains(FULL_NAME) ? user.get("fullName", String.class) : null,
+                fields.contains(EMAIL) ? user.get("email", String.class) : null,
+                fields.contains(CREATED_DATE) ? user.get("createdDate", LocalDate.class) : null,
+                roles != null ? List.copyOf(roles) : null);
+    }
+}
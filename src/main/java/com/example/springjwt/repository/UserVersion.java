@@ -0,0 +1,15 @@
+package com.example.springjwt.repository;
+
+/**
+ * Current version of a user with what the ownership check needs, read to
+ * answer conditional requests without loading the user
+ **/
+public interface UserVersion {
+
+    long getId();
+
+    String getUserName();
+
+    long getVersion();
+
+}
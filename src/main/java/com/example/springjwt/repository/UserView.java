@@ -0,0 +1,56 @@
+package com.example.springjwt.repository;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Value;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Set;
+
+import static com.example.springjwt.repository.UserField.*;
+
+/**
+ * Immutable response body of a user, fields which were not selected are
+ * null and left out of the JSON. Views read by the repository always carry
+ * the id, the user name and the version, the checks, the page cursor and
+ * the ETag depend on them.
+ **/
+@Value
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class UserView {
+
+    Long id;
+
+    String userName;
+
+    // Sent as the ETag, never in the body
+    @JsonIgnore
+    long version;
+
+    String fullName;
+
+    String email;
+
+    LocalDate createdDate;
+
+    List<RoleView> roles;
+
+    /**
+     * Copy with only the selected fields
+     **/
+    public UserView select(Set<UserField> fields) {
+        return new UserView(
+                fields.contains(ID) ? id : null,
+                fields.contains(USER_NAME) ? userName : null,
+                version, fullName, email, createdDate, roles);
+    }
+
+    @Value
+    public static class RoleView {
+
+        short id;
+
+        String name;
+    }
+}
@@ -0,0 +1,94 @@
+package com.example.springjwt.security;
+
+import com.example.springjwt.entity.Role;
+import com.example.springjwt.repository.UserCredentials;
+import lombok.Value;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Immutable user of a signin with everything token issuance needs, so the
+ * user is not loaded again after authentication. It is not a
+ * CredentialsContainer, the password hash is kept after authentication.
+ **/
+@Value
+public class AuthUser implements UserDetails {
+
+    long id;
+
+    String username;
+
+    String password;
+
+    // Detached copies, never attached to a persistence context
+    List<Role> roles;
+
+    List<GrantedAuthority> authorities;
+
+    private AuthUser(long id, String username, String password, List<Role> roles) {
+        this.id = id;
+        this.username = username;
+        this.password = password;
+        this.roles = List.copyOf(roles);
+
+        List<GrantedAuthority> authorities = new ArrayList<>(roles.size());
+
+        for (Role role : roles)
+            authorities.add(new SimpleGrantedAuthority(role.getName()));
+
+        this.authorities = List.copyOf(authorities);
+    }
+
+    /**
+     * Returns the user of the credential rows or null when there are no rows
+     **/
+    public static AuthUser of(List<? extends UserCredentials> rows) {
+
+        if (rows.isEmpty())
+            return null;
+
+        List<Role> roles = new ArrayList<>(rows.size());
+
+        for (UserCredentials row : rows) {
+            if (row.getRoleId() != null)
+                roles.add(new Role(row.getRoleId(), row.getRoleName()));
+        }
+
+        UserCredentials first = rows.get(0);
+
+        return new AuthUser(first.getId(), first.getUserName(), first.getPassword(), roles);
+    }
+
+    public AuthUser withPassword(String password) {
+        return new AuthUser(id, username, password, roles);
+    }
+
+    @Override
+    public boolean isAccountNonExpired() {
+        return true;
+    }
+
+    @Override
+    public boolean isAccountNonLocked() {
+        return true;
+    }
+
+    @Override
+    public boolean isCredentialsNonExpired() {
+        return true;
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        return username;
+    }
+}
@@ -0,0 +1,89 @@
+package com.example.springjwt.security;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Throttles signin attempts per username and per client address within a
+ * sliding window. It is consulted before the user lookup and the password
+ * hash, so rejected guesses cost neither.
+ **/
+@Component
+public class LoginAttemptLimiter {
+
+    private final SlidingWindowSketch usernames;
+
+    private final SlidingWindowSketch addresses;
+
+    private final int maxAttemptsPerUsername;
+
+    private final int maxAttemptsPerAddress;
+
+    private final LongAdder allowed = new LongAdder();
+
+    private final LongAdder rejectedByUsername = new LongAdder();
+
+    private final LongAdder rejectedByAddress = new LongAdder();
+
+    public LoginAttemptLimiter(@Value("${auth.login.throttle.window-ms:60000}") long windowMillis,
+                               @Value("${auth.login.throttle.buckets:6}") int buckets,
+                               @Value("${auth.login.throttle.width:1024}") int width,
+                               @Value("${auth.login.throttle.max-attempts-per-username:10}") int maxAttemptsPerUsername,
+                               @Value("${auth.login.throttle.max-attempts-per-address:50}") int maxAttemptsPerAddress) {
+
+        this.usernames = new SlidingWindowSketch(windowMillis, buckets, width);
+        this.addresses = new SlidingWindowSketch(windowMillis, buckets, width);
+        this.maxAttemptsPerUsername = maxAttemptsPerUsername;
+        this.maxAttemptsPerAddress = maxAttemptsPerAddress;
+    }
+
+    /**
+     * Records the attempt and returns 0, or returns the seconds to wait when
+     * the username or the address is over its limit. Rejected attempts are
+     * not counted, so a throttled client is let in again once its window passes.
+     **/
+    public long tryAcquire(String username, String address) {
+        return tryAcquire(username, address, System.currentTimeMillis());
+    }
+
+    long tryAcquire(String username, String address, long now) {
+
+        String user = username != null ? username : "";
+        String client = address != null ? address : "";
+
+        if (usernames.estimate(user, now) >= maxAttemptsPerUsername) {
+            rejectedByUsername.increment();
+            return retryAfterSeconds(usernames, now);
+        }
+
+        if (addresses.estimate(client, now) >= maxAttemptsPerAddress) {
+            rejectedByAddress.increment();
+            return retryAfterSeconds(addresses, now);
+        }
+
+        usernames.add(user, now);
+        addresses.add(client, now);
+        allowed.increment();
+
+        return 0;
+    }
+
+    public long getAllowed() {
+        return allowed.sum();
+    }
+
+    public long getRejectedByUsername() {
+        return rejectedByUsername.sum();
+    }
+
+    public long getRejectedByAddress() {
+        return rejectedByAddress.sum();
+    }
+
+    private static long retryAfterSeconds(SlidingWindowSketch sketch, long now) {
+        return Math.max(1, TimeUnit.MILLISECONDS.toSeconds(sketch.millisToNextBucket(now) + 999));
+    }
+}
@@ -0,0 +1,112 @@
+package com.example.springjwt.security;
+
+import lombok.RequiredArgsConstructor;
+import lombok.Value;
+import org.springframework.security.authentication.AccountStatusUserDetailsChecker;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsChecker;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Signin password check split by the kind of work. The user is loaded on the
+ * calling thread, only the hash comparison, and the re-encoding of outdated
+ * hashes, run on the hashing pool. Database latency never holds a hashing slot.
+ **/
+@Component
+@RequiredArgsConstructor
+public class PasswordAuthenticator {
+
+    private static final String BAD_CREDENTIALS = "Bad credentials";
+
+    private final UserDetailsService userDetailsService;
+    private final UserDetailsPasswordService passwordService;
+    private final PasswordEncoder passwordEncoder;
+    private final PasswordHashingExecutor hashingExecutor;
+
+    private final UserDetailsChecker statusChecker = new AccountStatusUserDetailsChecker();
+
+    // Compared for unknown users, encoded on the pool by the first of them
+    private volatile String unknownUserHash;
+
+    /**
+     * Loads the user and queues the password check. The future completes on a
+     * pool thread, with a BadCredentialsException when the password is wrong.
+     * Throws ServiceBusyException when the pool queue is full, and
+     * BadCredentialsException right away when no password was sent.
+     **/
+    public CompletableFuture<Verified> verify(UsernamePasswordAuthenticationToken request) {
+
+        if (request.getCredentials() == null)
+            throw new BadCredentialsException(BAD_CREDENTIALS);
+
+        String password = request.getCredentials().toString();
+
+        UserDetails user;
+
+        try {
+            user = userDetailsService.loadUserByUsername(request.getName());
+
+        } catch (UsernameNotFoundException e) {
+            // Same hashing work as for a known user, the response time does not tell whether it exists
+            return hashingExecutor.submit(() -> {
+                passwordEncoder.matches(password, unknownUserHash());
+                throw new BadCredentialsException(BAD_CREDENTIALS);
+            });
+        }
+
+        statusChecker.check(user);
+
+        return hashingExecutor.submit(() -> {
+
+            if (!passwordEncoder.matches(password, user.getPassword()))
+                throw new BadCredentialsException(BAD_CREDENTIALS);
+
+            return new Verified(user, passwordEncoder.upgradeEncoding(user.getPassword())
+                    ? passwordEncoder.encode(password) : null);
+        });
+    }
+
+    /**
+     * Stores an upgraded hash and returns the authentication of the verified
+     * user, meant for the thread which writes the response
+     **/
+    public Authentication authenticated(Verified verified) {
+
+        UserDetails user = verified.getUser();
+
+        if (verified.getUpgradedHash() != null)
+            user = passwordService.updatePassword(user, verified.getUpgradedHash());
+
+        return new UsernamePasswordAuthenticationToken(user, null, user.getAuthorities());
+    }
+
+    private String unknownUserHash() {
+
+        String hash = unknownUserHash;
+
+        if (hash == null)
+            unknownUserHash = hash = passwordEncoder.encode("unknown-user-password");
+
+        return hash;
+    }
+
+    /**
+     * User whose password matched, with the re-encoded hash when the stored one is outdated
+     **/
+    @Value
+    public static class Verified {
+
+        UserDetails user;
+
+        String upgradedHash;
+    }
+}
@@ -0,0 +1,100 @@
+package com.example.springjwt.security;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.DelegatingPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * Picks the BCrypt strength for this node at startup by timing a cheap probe
+ * hash and extrapolating it to the target verification latency, every extra
+ * strength step doubles the cost.
+ **/
+@Slf4j
+@Component
+public class PasswordEncoderCalibration {
+
+    public static final String ENCODER_ID = "bcrypt";
+
+    private static final int PROBE_STRENGTH = 6;
+
+    private static final int PROBE_ROUNDS = 5;
+
+    private final int strength;
+
+    private final double estimatedMillis;
+
+    private final long targetMillis;
+
+    public PasswordEncoderCalibration(@Value("${auth.password.bcrypt.target-ms:250}") long targetMillis,
+                                      @Value("${auth.password.bcrypt.min-strength:10}") int minStrength,
+                                      @Value("${auth.password.bcrypt.max-strength:16}") int maxStrength) {
+
+        double probeMillis = measure(PROBE_STRENGTH);
+
+        int estimated = PROBE_STRENGTH;
+
+        if (targetMillis > 0)
+            estimated += (int) Math.floor(Math.log(targetMillis / probeMillis) / Math.log(2));
+
+        this.strength = Math.max(minStrength, Math.min(maxStrength, estimated));
+        this.estimatedMillis = probeMillis * Math.pow(2, strength - PROBE_STRENGTH);
+        this.targetMillis = targetMillis;
+
+        log.info("Password encoder calibrated to {} strength {}, about {} ms per hash (target {} ms)",
+                ENCODER_ID, strength, Math.round(estimatedMillis), targetMillis);
+    }
+
+    /**
+     * Encodes with the calibrated strength, hashes without an id prefix or
+     * with a lower strength are reported for upgrade on the next login
+     **/
+    public PasswordEncoder createPasswordEncoder() {
+
+        BCryptPasswordEncoder bCrypt = new BCryptPasswordEncoder(strength);
+
+        DelegatingPasswordEncoder encoder = new DelegatingPasswordEncoder(ENCODER_ID, Map.of(ENCODER_ID, bCrypt));
+
+        // Hashes stored before the id prefix was introduced are plain BCrypt
+        encoder.setDefaultPasswordEncoderForMatches(bCrypt);
+
+        return encoder;
+    }
+
+    public int getStrength() {
+        return strength;
+    }
+
+    public double getEstimatedMillis() {
+        return estimatedMillis;
+    }
+
+    public long getTargetMillis() {
+        return targetMillis;
+    }
+
+    // Median of a few rounds after a warm up, so JIT and a single slow round do not skew it
+    private static double measure(int strength) {
+
+        BCryptPasswordEncoder probe = new BCryptPasswordEncoder(strength);
+
+        probe.encode("calibration");
+
+        long[] rounds = new long[PROBE_ROUNDS];
+
+        for (int i = 0; i < PROBE_ROUNDS; i++) {
+            long start = System.nanoTime();
+            probe.encode("calibration");
+            rounds[i] = System.nanoTime() - start;
+        }
+
+        Arrays.sort(rounds);
+
+        return Math.max(rounds[PROBE_ROUNDS / 2], 1) / 1_000_000.0;
+    }
+}
@@ -0,0 +1,154 @@
+package com.example.springjwt.security;
+
+import com.example.springjwt.exception.ErrorKind;
+import com.example.springjwt.exception.ServiceBusyException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Runs password hashing on a CPU-sized pool with a bounded wait queue, so a
+ * login burst can not starve the request threads of the other endpoints.
+ * Work which can not be queued, or waited in the queue longer than the
+ * maximum wait, is rejected with a ServiceBusyException.
+ **/
+@Component
+public class PasswordHashingExecutor {
+
+    private final ThreadPoolExecutor executor;
+
+    private final long maxWaitMillis;
+
+    private final long retryAfterSeconds;
+
+    public PasswordHashingExecutor(@Value("${auth.password.hashing.threads:0}") int threads,
+                                   @Value("${auth.password.hashing.queue-capacity:64}") int queueCapacity,
+                                   @Value("${auth.password.hashing.max-wait-ms:1000}") long maxWaitMillis) {
+
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+
+        AtomicInteger counter = new AtomicInteger();
+
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+            Thread thread = new Thread(runnable, "password-hashing-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        this.maxWaitMillis = maxWaitMillis;
+        this.retryAfterSeconds = Math.max(1, TimeUnit.MILLISECONDS.toSeconds(maxWaitMillis));
+    }
+
+    /**
+     * Queues the task without waiting for it, throws ServiceBusyException when the queue is full
+     **/
+    public <T> CompletableFuture<T> submit(Supplier<T> task) {
+
+        long queuedAt = System.currentTimeMillis();
+
+        CompletableFuture<T> future = new CompletableFuture<>();
+
+        try {
+            executor.execute(() -> {
+
+                // Cancelled while it was queued
+                if (future.isDone())
+                    return;
+
+                // The client has most likely given up already
+                if (System.currentTimeMillis() - queuedAt > maxWaitMillis) {
+                    future.completeExceptionally(busy());
+                    return;
+                }
+
+                try {
+                    future.complete(task.get());
+                } catch (Throwable e) {
+                    future.completeExceptionally(e);
+                }
+            });
+
+        } catch (RejectedExecutionException e) {
+            throw busy();
+        }
+
+        return future;
+    }
+
+    /**
+     * Runs the task on the pool and waits for it on the calling thread
+     **/
+    public <T> T call(Supplier<T> task) {
+
+        CompletableFuture<T> future = submit(task);
+
+        try {
+            return future.get(getTimeoutMillis(), TimeUnit.MILLISECONDS);
+
+        } catch (TimeoutException e) {
+            future.cancel(false);
+            throw busy();
+
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw busy();
+
+        } catch (ExecutionException e) {
+            throw unwrap(e.getCause());
+        }
+    }
+
+    /**
+     * Longest time a caller waits for a task, the queue wait plus the hashing itself
+     **/
+    public long getTimeoutMillis() {
+        return maxWaitMillis * 2;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+
+    public int getQueueSize() {
+        return executor.getQueue().size();
+    }
+
+    public int getActiveCount() {
+        return executor.getActiveCount();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Returns the original exception of a failed task
+     **/
+    public static RuntimeException unwrap(Throwable error) {
+
+        if (error instanceof CompletionException && error.getCause() != null)
+            error = error.getCause();
+
+        if (error instanceof RuntimeException)
+            return (RuntimeException) error;
+
+        return new IllegalStateException(error);
+    }
+
+    private ServiceBusyException busy() {
+        return new ServiceBusyException(ErrorKind.SERVICE_BUSY.getMessage(), retryAfterSeconds);
+    }
+}
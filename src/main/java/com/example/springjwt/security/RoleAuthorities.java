@@ -0,0 +1,323 @@
+package com.example.springjwt.security;
+
+import com.example.springjwt.entity.Role;
+import com.example.springjwt.service.RoleCatalog;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+import static com.example.springjwt.util.SecurityConstant.ROLE_HIERARCHY;
+
+/**
+ * Registry of the roles by their short id, with one interned authority per role.
+ * Token roles are encoded as a bitmask of the role ids, the Base64url bytes of
+ * a BitSet, which is decoded once per distinct mask into a shared RoleSet.
+ *
+ * Roles saved on this node are registered directly, ids which are not known
+ * yet reload the registry from the role catalog at most once a second.
+ *
+ * Masks carry only the top roles of the role hierarchy. The roles they imply
+ * are expanded from a closure table by role id, which is rebuilt whenever
+ * the registry changes.
+ **/
+@Component
+public class RoleAuthorities {
+
+    private static final long RELOAD_INTERVAL_NANOS = 1_000_000_000L;
+
+    // Distinct masks are the distinct role combinations, the bound only guards against garbage
+    private static final int MAX_CACHED_MASKS = 1024;
+
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    private final Supplier<List<Role>> loader;
+
+    private final RoleHierarchyClosure hierarchy = RoleHierarchyClosure.parse(ROLE_HIERARCHY);
+
+    private final Map<String, RoleSet> decoded = new ConcurrentHashMap<>();
+
+    private volatile Snapshot snapshot = new Snapshot(new GrantedAuthority[0], new BitSet[0], Map.of());
+
+    private volatile long lastReload = System.nanoTime() - RELOAD_INTERVAL_NANOS;
+
+    @Autowired
+    public RoleAuthorities(RoleCatalog roleCatalog) {
+        this(() -> {
+            roleCatalog.refreshIfChanged();
+            return roleCatalog.getRoles();
+        });
+    }
+
+    /**
+     * Registry which only knows the registered roles
+     **/
+    public RoleAuthorities() {
+        this(List::of);
+    }
+
+    private RoleAuthorities(Supplier<List<Role>> loader) {
+        this.loader = loader;
+    }
+
+    public synchronized void register(Role role) {
+        snapshot = snapshot.with(List.of(role), hierarchy);
+        decoded.clear();
+    }
+
+    /**
+     * Hierarchy check by role names, for the authentications without a role set
+     **/
+    public boolean implies(String granted, String required) {
+        return hierarchy.implies(granted, required);
+    }
+
+    /**
+     * Returns the role id of the authority or -1 when there is no such role
+     **/
+    public int idOf(String authority) {
+
+        Short id = snapshot.idByName.get(authority);
+
+        if (id == null && reload())
+            id = snapshot.idByName.get(authority);
+
+        return id != null ? id : -1;
+    }
+
+    /**
+     * Mask of the top roles, roles implied by another of the roles are left out
+     **/
+    public String encode(Collection<Role> roles) {
+
+        BitSet ids = new BitSet();
+
+        boolean unknown = false;
+
+        for (Role role : roles) {
+            ids.set(role.getId());
+            unknown |= snapshot.authority(role.getId()) == null;
+        }
+
+        if (unknown)
+            registerAll(roles);
+
+        return ENCODER.encodeToString(top(ids, snapshot).toByteArray());
+    }
+
+    /**
+     * Decodes a role mask of a token, throws IllegalArgumentException when it is not Base64url
+     **/
+    public RoleSet decode(String roleMask) {
+
+        RoleSet roles = decoded.get(roleMask);
+
+        if (roles != null)
+            return roles;
+
+        BitSet ids = BitSet.valueOf(DECODER.decode(roleMask));
+
+        roles = resolve(ids, snapshot);
+
+        if (roles == null && reload())
+            roles = resolve(ids, snapshot);
+
+        // Ids of deleted roles are dropped, such roles are not cached
+        if (roles == null)
+            return partial(ids, snapshot);
+
+        if (decoded.size() < MAX_CACHED_MASKS)
+            decoded.putIfAbsent(roleMask, roles);
+
+        return roles;
+    }
+
+    /**
+     * Roles of the tokens with the role names claim, issued before the role mask
+     **/
+    public RoleSet fromNames(String[] names) {
+
+        BitSet ids = new BitSet();
+        List<GrantedAuthority> unknown = new ArrayList<>();
+
+        for (String name : names) {
+
+            int id = idOf(name);
+
+            if (id < 0)
+                unknown.add(new SimpleGrantedAuthority(name));
+            else
+                ids.set(id);
+        }
+
+        return roleSet(ids, snapshot, unknown);
+    }
+
+    // Null when an id is not a known role
+    private static RoleSet resolve(BitSet ids, Snapshot snapshot) {
+
+        for (int id = ids.nextSetBit(0); id >= 0; id = ids.nextSetBit(id + 1)) {
+            if (snapshot.authority(id) == null)
+                return null;
+        }
+
+        return roleSet(ids, snapshot, List.of());
+    }
+
+    private static RoleSet partial(BitSet ids, Snapshot snapshot) {
+
+        BitSet known = new BitSet();
+
+        for (int id = ids.nextSetBit(0); id >= 0; id = ids.nextSetBit(id + 1)) {
+            if (snapshot.authority(id) != null)
+                known.set(id);
+        }
+
+        return roleSet(known, snapshot, List.of());
+    }
+
+    // Checks see all implied roles, the authorities are the top roles only
+    private static RoleSet roleSet(BitSet ids, Snapshot snapshot, List<GrantedAuthority> unknown) {
+
+        BitSet effective = new BitSet();
+
+        for (int id = ids.nextSetBit(0); id >= 0; id = ids.nextSetBit(id + 1))
+            effective.or(snapshot.closure[id]);
+
+        BitSet top = top(ids, snapshot);
+
+        List<GrantedAuthority> authorities = new ArrayList<>(top.cardinality() + unknown.size());
+
+        for (int id = top.nextSetBit(0); id >= 0; id = top.nextSetBit(id + 1))
+            authorities.add(snapshot.authority(id));
+
+        authorities.addAll(unknown);
+
+        return new RoleSet(effective, authorities);
+    }
+
+    // Drops the known ids which another of the ids implies
+    private static BitSet top(BitSet ids, Snapshot snapshot) {
+
+        BitSet implied = new BitSet();
+
+        for (int id = ids.nextSetBit(0); id >= 0; id = ids.nextSetBit(id + 1)) {
+            if (id < snapshot.closure.length && snapshot.closure[id] != null) {
+                BitSet lower = (BitSet) snapshot.closure[id].clone();
+                lower.clear(id);
+                implied.or(lower);
+            }
+        }
+
+        BitSet top = (BitSet) ids.clone();
+        top.andNot(implied);
+
+        return top;
+    }
+
+    private synchronized void registerAll(Collection<Role> roles) {
+        snapshot = snapshot.with(roles, hierarchy);
+        decoded.clear();
+    }
+
+    // Returns false when the registry was reloaded too recently
+    private synchronized boolean reload() {
+
+        long now = System.nanoTime();
+
+        if (now - lastReload < RELOAD_INTERVAL_NANOS)
+            return false;
+
+        lastReload = now;
+
+        snapshot = snapshot.with(loader.get(), hierarchy);
+        decoded.clear();
+
+        return true;
+    }
+
+    /**
+     * Immutable view of the registry, replaced as a whole on every change
+     **/
+    private static final class Snapshot {
+
+        private final GrantedAuthority[] byId;
+
+        // Ids of the role and of all the roles it implies, null for unknown ids
+        private final BitSet[] closure;
+
+        private final Map<String, Short> idByName;
+
+        private Snapshot(GrantedAuthority[] byId, BitSet[] closure, Map<String, Short> idByName) {
+            this.byId = byId;
+            this.closure = closure;
+            this.idByName = idByName;
+        }
+
+        GrantedAuthority authority(int id) {
+            return id < byId.length ? byId[id] : null;
+        }
+
+        // Authorities of unchanged roles stay the same instances
+        Snapshot with(Collection<Role> roles, RoleHierarchyClosure hierarchy) {
+
+            int length = byId.length;
+
+            for (Role role : roles)
+                length = Math.max(length, role.getId() + 1);
+
+            GrantedAuthority[] authorities = new GrantedAuthority[length];
+            System.arraycopy(byId, 0, authorities, 0, byId.length);
+
+            Map<String, Short> ids = new HashMap<>(idByName);
+
+            for (Role role : roles) {
+
+                GrantedAuthority current = authorities[role.getId()];
+
+                if (current != null && current.getAuthority().equals(role.getName()))
+                    continue;
+
+                if (current != null)
+                    ids.remove(current.getAuthority());
+
+                authorities[role.getId()] = new SimpleGrantedAuthority(role.getName());
+                ids.put(role.getName(), role.getId());
+            }
+
+            // Any role may complete the hierarchy of others, the whole table is rebuilt
+            BitSet[] closure = new BitSet[length];
+
+            for (int id = 0; id < length; id++) {
+
+                if (authorities[id] == null)
+                    continue;
+
+                closure[id] = new BitSet();
+                closure[id].set(id);
+
+                for (String implied : hierarchy.impliedBy(authorities[id].getAuthority())) {
+
+                    Short impliedId = ids.get(implied);
+
+                    if (impliedId != null)
+                        closure[id].set(impliedId);
+                }
+            }
+
+            return new Snapshot(authorities, closure, Map.copyOf(ids));
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.example.springjwt.security;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Transitive closure of a declared role hierarchy, computed once so that
+ * the roles implied by a role are a single lookup.
+ * The hierarchy is declared as lines of `ROLE_A > ROLE_B > ROLE_C`,
+ * a role implies every role on its right. Cycles are rejected.
+ **/
+public final class RoleHierarchyClosure {
+
+    private final Map<String, Set<String>> implied;
+
+    private RoleHierarchyClosure(Map<String, Set<String>> implied) {
+        this.implied = implied;
+    }
+
+    public static RoleHierarchyClosure parse(String declaration) {
+
+        Map<String, Set<String>> edges = new HashMap<>();
+
+        for (String line : declaration.split("\n")) {
+
+            if (line.isBlank())
+                continue;
+
+            String[] roles = line.split(">");
+
+            for (int i = 0; i < roles.length - 1; i++) {
+
+                String higher = roles[i].trim();
+                String lower = roles[i + 1].trim();
+
+                if (higher.isEmpty() || lower.isEmpty())
+                    throw new IllegalArgumentException("Invalid role hierarchy: " + line);
+
+                edges.computeIfAbsent(higher, role -> new LinkedHashSet<>()).add(lower);
+            }
+        }
+
+        Map<String, Set<String>> implied = new HashMap<>();
+
+        for (String role : edges.keySet())
+            implied.put(role, Set.copyOf(reachable(role, edges)));
+
+        return new RoleHierarchyClosure(Map.copyOf(implied));
+    }
+
+    /**
+     * Roles implied by the role, without the role itself
+     **/
+    public Set<String> impliedBy(String role) {
+        return implied.getOrDefault(role, Set.of());
+    }
+
+    public boolean implies(String granted, String required) {
+        return granted.equals(required) || impliedBy(granted).contains(required);
+    }
+
+    private static Set<String> reachable(String start, Map<String, Set<String>> edges) {
+
+        Set<String> reached = new HashSet<>();
+
+        List<String> pending = new ArrayList<>(edges.getOrDefault(start, Set.of()));
+
+        while (!pending.isEmpty()) {
+
+            String role = pending.remove(pending.size() - 1);
+
+            if (role.equals(start))
+                throw new IllegalArgumentException("Role hierarchy has a cycle through " + start);
+
+            if (reached.add(role))
+                pending.addAll(edges.getOrDefault(role, Set.of()));
+        }
+
+        return reached;
+    }
+}
@@ -0,0 +1,35 @@
+package com.example.springjwt.security;
+
+import org.springframework.security.core.GrantedAuthority;
+
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Immutable set of roles as a bitset of role ids, including the roles implied
+ * through the role hierarchy, with the interned authorities of the top roles
+ * only. Instances are shared between requests.
+ **/
+public final class RoleSet {
+
+    private final BitSet ids;
+
+    private final List<GrantedAuthority> authorities;
+
+    RoleSet(BitSet ids, List<GrantedAuthority> authorities) {
+        this.ids = (BitSet) ids.clone();
+        this.authorities = List.copyOf(authorities);
+    }
+
+    public boolean contains(int roleId) {
+        return roleId >= 0 && ids.get(roleId);
+    }
+
+    public List<GrantedAuthority> getAuthorities() {
+        return authorities;
+    }
+
+    public BitSet toBitSet() {
+        return (BitSet) ids.clone();
+    }
+}
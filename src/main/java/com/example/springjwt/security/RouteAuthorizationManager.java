@@ -0,0 +1,75 @@
+package com.example.springjwt.security;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.security.authentication.AuthenticationTrustResolver;
+import org.springframework.security.authentication.AuthenticationTrustResolverImpl;
+import org.springframework.security.authorization.AuthorizationDecision;
+import org.springframework.security.authorization.AuthorizationManager;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.web.access.intercept.RequestAuthorizationContext;
+
+import java.util.function.Supplier;
+
+/**
+ * Decides a request with the rule the route trie resolves for it, in place
+ * of the ordered ant matchers. Requests no rule matches are not decided,
+ * like unmatched requests of the ordered matchers.
+ **/
+@RequiredArgsConstructor
+public class RouteAuthorizationManager implements AuthorizationManager<RequestAuthorizationContext> {
+
+    private static final AuthorizationDecision GRANTED = new AuthorizationDecision(true);
+
+    private static final AuthorizationDecision DENIED = new AuthorizationDecision(false);
+
+    private final AuthenticationTrustResolver trustResolver = new AuthenticationTrustResolverImpl();
+
+    private final RouteTrie routes;
+
+    private final RoleAuthorities roleAuthorities;
+
+    @Override
+    public AuthorizationDecision check(Supplier<Authentication> authentication, RequestAuthorizationContext context) {
+
+        RouteRule route = routes.match(context.getRequest());
+
+        if (route == null)
+            return null;
+
+        switch (route.getAccess()) {
+
+            case PERMIT_ALL:
+                return GRANTED;
+
+            case AUTHENTICATED:
+                return isAuthenticated(authentication.get()) ? GRANTED : DENIED;
+
+            default:
+                return hasAuthority(authentication.get(), route.getAuthority()) ? GRANTED : DENIED;
+        }
+    }
+
+    private boolean isAuthenticated(Authentication authentication) {
+        return authentication != null && authentication.isAuthenticated() && !trustResolver.isAnonymous(authentication);
+    }
+
+    private boolean hasAuthority(Authentication authentication, String authority) {
+
+        if (authentication == null)
+            return false;
+
+        // Token authentications are checked with a bit test on the role ids, implied roles included
+        if (authentication.getPrincipal() instanceof TokenPrincipal) {
+            int roleId = roleAuthorities.idOf(authority);
+            return roleId >= 0 && ((TokenPrincipal) authentication.getPrincipal()).hasRole(roleId);
+        }
+
+        for (GrantedAuthority granted : authentication.getAuthorities()) {
+            if (roleAuthorities.implies(granted.getAuthority(), authority))
+                return true;
+        }
+
+        return false;
+    }
+}
@@ -0,0 +1,43 @@
+package com.example.springjwt.security;
+
+import lombok.Value;
+import org.springframework.http.HttpMethod;
+
+/**
+ * Authorization rule of a route, `method` is null for any method.
+ * Patterns are ant patterns of literal and `*` segments, optionally
+ * ending with `/**`.
+ **/
+@Value
+public class RouteRule {
+
+    public enum Access {
+        PERMIT_ALL,
+        AUTHENTICATED,
+        HAS_AUTHORITY
+    }
+
+    HttpMethod method;
+
+    String pattern;
+
+    Access access;
+
+    String authority;
+
+    public static RouteRule permitAll(HttpMethod method, String pattern) {
+        return new RouteRule(method, pattern, Access.PERMIT_ALL, null);
+    }
+
+    public static RouteRule authenticated(HttpMethod method, String pattern) {
+        return new RouteRule(method, pattern, Access.AUTHENTICATED, null);
+    }
+
+    public static RouteRule hasAuthority(HttpMethod method, String pattern, String authority) {
+        return new RouteRule(method, pattern, Access.HAS_AUTHORITY, authority);
+    }
+
+    public boolean isPublic() {
+        return access == Access.PERMIT_ALL;
+    }
+}
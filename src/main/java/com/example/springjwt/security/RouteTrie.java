@@ -0,0 +1,308 @@
+package com.example.springjwt.security;
+
+import org.springframework.http.HttpMethod;
+import org.springframework.util.StringUtils;
+
+import javax.servlet.http.HttpServletRequest;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Route rules compiled into path tries, so a request is classified in one
+ * walk over its segments instead of trying every ant matcher in turn.
+ * The first declared rule which matches wins, like the ordered matchers.
+ *
+ * Matching follows AntPathRequestMatcher: a pattern like `/roles/**` is a
+ * raw prefix match ending on a `/` boundary, other patterns are matched
+ * segment by segment with empty segments ignored and the trailing slash of
+ * the pattern and the path having to agree.
+ **/
+public class RouteTrie {
+
+    private static final String MATCH_ALL = "/**";
+
+    private final List<RouteRule> rules;
+
+    // Patterns matched segment by segment
+    private final Node antRoot = new Node(null);
+
+    // `/**` suffixed patterns matched as raw path prefixes
+    private final Node prefixRoot = new Node(null);
+
+    private final List<Entry> matchAll = new ArrayList<>();
+
+    public RouteTrie(List<RouteRule> rules) {
+
+        this.rules = List.copyOf(rules);
+
+        for (int i = 0; i < this.rules.size(); i++)
+            add(i, this.rules.get(i));
+    }
+
+    public List<RouteRule> getRules() {
+        return rules;
+    }
+
+    /**
+     * Returns the first rule matching the request or null
+     **/
+    public RouteRule match(HttpServletRequest request) {
+        return match(request.getMethod(), requestPath(request));
+    }
+
+    public RouteRule match(String method, String path) {
+
+        Match match = new Match(method);
+
+        match.collect(matchAll);
+
+        walkPrefix(prefixRoot, path, 0, match);
+
+        if (path.startsWith("/"))
+            walkAnt(antRoot, path, 0, match);
+
+        return match.best == Integer.MAX_VALUE ? null : rules.get(match.best);
+    }
+
+    // Same path as AntPathRequestMatcher uses
+    public static String requestPath(HttpServletRequest request) {
+
+        String url = request.getServletPath();
+        String pathInfo = request.getPathInfo();
+
+        if (pathInfo != null)
+            url = StringUtils.hasLength(url) ? url + pathInfo : pathInfo;
+
+        return url;
+    }
+
+    private void add(int index, RouteRule rule) {
+
+        String pattern = rule.getPattern();
+
+        if (pattern.equals(MATCH_ALL) || pattern.equals("**")) {
+            matchAll.add(new Entry(index, rule.getMethod(), false));
+            return;
+        }
+
+        if (pattern.endsWith(MATCH_ALL) && pattern.indexOf('*') == pattern.length() - 2
+                && pattern.indexOf('?') < 0 && pattern.indexOf('{') < 0 && pattern.indexOf('}') < 0) {
+            addPrefix(index, rule, pattern.substring(0, pattern.length() - MATCH_ALL.length()));
+            return;
+        }
+
+        addAnt(index, rule, pattern);
+    }
+
+    private void addPrefix(int index, RouteRule rule, String prefix) {
+
+        Node node = prefixRoot;
+
+        int start = 0;
+
+        while (true) {
+
+            int end = prefix.indexOf('/', start);
+
+            if (end < 0)
+                end = prefix.length();
+
+            node = node.literal(prefix.substring(start, end));
+
+            if (end == prefix.length())
+                break;
+
+            start = end + 1;
+        }
+
+        node.terminals.add(new Entry(index, rule.getMethod(), false));
+    }
+
+    private void addAnt(int index, RouteRule rule, String pattern) {
+
+        if (!pattern.startsWith("/"))
+            throw unsupported(pattern);
+
+        Node node = antRoot;
+
+        String[] segments = StringUtils.tokenizeToStringArray(pattern, "/", false, true);
+
+        for (int i = 0; i < segments.length; i++) {
+
+            String segment = segments[i];
+
+            if (segment.equals("**")) {
+
+                if (i != segments.length - 1)
+                    throw unsupported(pattern);
+
+                node.doubleStars.add(new Entry(index, rule.getMethod(), false));
+                return;
+            }
+
+            if (segment.equals("*"))
+                node = node.star();
+
+            else if (segment.indexOf('*') >= 0 || segment.indexOf('?') >= 0 || segment.indexOf('{') >= 0)
+                throw unsupported(pattern);
+
+            else
+                node = node.literal(segment);
+        }
+
+        node.terminals.add(new Entry(index, rule.getMethod(), pattern.endsWith("/")));
+    }
+
+    // Raw segments, a prefix matches when all of its segments are leading segments of the path
+    private static void walkPrefix(Node node, String path, int start, Match match) {
+
+        match.collect(node.terminals);
+
+        if (start > path.length())
+            return;
+
+        int end = path.indexOf('/', start);
+
+        if (end < 0)
+            end = path.length();
+
+        Node child = node.find(path, start, end);
+
+        if (child != null)
+            walkPrefix(child, path, end + 1, match);
+    }
+
+    // Non empty segments, `*` matches one segment and a trailing `**` any remaining ones
+    private static void walkAnt(Node node, String path, int position, Match match) {
+
+        match.collect(node.doubleStars);
+
+        int start = position;
+
+        while (start < path.length() && path.charAt(start) == '/')
+            start++;
+
+        if (start == path.length()) {
+
+            boolean endsWithSlash = path.endsWith("/");
+
+            for (Entry entry : node.terminals) {
+                if (entry.endsWithSlash == endsWithSlash)
+                    match.collect(entry);
+            }
+
+            // A last `*` segment also matches the empty segment of a trailing slash
+            if (node.star != null && endsWithSlash)
+                match.collect(node.star.terminals);
+
+            return;
+        }
+
+        int end = path.indexOf('/', start);
+
+        if (end < 0)
+            end = path.length();
+
+        Node child = node.find(path, start, end);
+
+        if (child != null)
+            walkAnt(child, path, end, match);
+
+        if (node.star != null)
+            walkAnt(node.star, path, end, match);
+    }
+
+    private static IllegalArgumentException unsupported(String pattern) {
+        return new IllegalArgumentException("Route pattern is not supported: " + pattern);
+    }
+
+    private static class Node {
+
+        private final String label;
+
+        private final List<Node> literals = new ArrayList<>();
+
+        private Node star;
+
+        private final List<Entry> terminals = new ArrayList<>();
+
+        private final List<Entry> doubleStars = new ArrayList<>();
+
+        Node(String label) {
+            this.label = label;
+        }
+
+        Node literal(String segment) {
+
+            for (Node child : literals) {
+                if (child.label.equals(segment))
+                    return child;
+            }
+
+            Node child = new Node(segment);
+            literals.add(child);
+            return child;
+        }
+
+        Node star() {
+
+            if (star == null)
+                star = new Node("*");
+
+            return star;
+        }
+
+        // Compares in place, the path is never split into strings
+        Node find(String path, int start, int end) {
+
+            int length = end - start;
+
+            for (Node child : literals) {
+                if (child.label.length() == length && path.regionMatches(start, child.label, 0, length))
+                    return child;
+            }
+
+            return null;
+        }
+    }
+
+    private static class Entry {
+
+        private final int index;
+
+        private final HttpMethod method;
+
+        private final boolean endsWithSlash;
+
+        Entry(int index, HttpMethod method, boolean endsWithSlash) {
+            this.index = index;
+            this.method = method;
+            this.endsWithSlash = endsWithSlash;
+        }
+    }
+
+    private static class Match {
+
+        private final boolean anyMethod;
+
+        private final HttpMethod method;
+
+        private int best = Integer.MAX_VALUE;
+
+        Match(String method) {
+            this.anyMethod = !StringUtils.hasText(method);
+            this.method = anyMethod ? null : HttpMethod.resolve(method);
+        }
+
+        void collect(List<Entry> entries) {
+            for (Entry entry : entries)
+                collect(entry);
+        }
+
+        // A request without a method matches rules of every method
+        void collect(Entry entry) {
+            if (entry.index < best && (entry.method == null || anyMethod || entry.method == method))
+                best = entry.index;
+        }
+    }
+}
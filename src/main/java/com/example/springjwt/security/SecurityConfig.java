@@ -5,6 +5,7 @@ import com.example.springjwt.exception.CustomAuthenticationExceptionHandler;
 import com.example.springjwt.filter.CustomAuthenticationFilter;
 import com.example.springjwt.filter.CustomAuthorizationFilter;
 import com.example.springjwt.service.TokenService;
+import com.example.springjwt.util.AuthJsonCodec;
 import lombok.AllArgsConstructor;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -14,9 +15,13 @@ import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.annotation.web.configuration.WebSecurityConfigurerAdapter;
 import org.springframework.security.core.userdetails.UserDetailsService;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.web.authentication.AuthenticationEntryPointFailureHandler;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
 
+import java.util.List;
+
 import static org.springframework.http.HttpMethod.GET;
 import static org.springframework.http.HttpMethod.POST;
 import static org.springframework.security.config.http.SessionCreationPolicy.STATELESS;
@@ -26,39 +31,58 @@ import static org.springframework.security.config.http.SessionCreationPolicy.STA
 @AllArgsConstructor
 public class SecurityConfig extends WebSecurityConfigurerAdapter {
 
+    /**
+     * Authorization rules in precedence order, the first matching rule applies
+     **/
+    static final List<RouteRule> ROUTES = List.of(
+            RouteRule.permitAll(POST, "/auth/**"),
+            RouteRule.permitAll(POST, "/users"),
+            RouteRule.hasAuthority(GET, "/users", "ROLE_ADMIN"),
+            RouteRule.hasAuthority(null, "/users/*/", "ROLE_USER"),
+            RouteRule.hasAuthority(null, "/roles/**", "ROLE_ADMIN"),
+            RouteRule.authenticated(null, "/**"));
+
     private final UserDetailsService userDetailsService;
-    private final BCryptPasswordEncoder bCryptPasswordEncoder;
+    private final UserDetailsPasswordService userDetailsPasswordService;
+    private final PasswordEncoder passwordEncoder;
     private final TokenService tokenService;
+    private final PasswordAuthenticator passwordAuthenticator;
+    private final PasswordHashingExecutor hashingExecutor;
+    private final LoginAttemptLimiter attemptLimiter;
+    private final AuthJsonCodec jsonCodec;
+    private final RoleAuthorities roleAuthorities;
 
     @Override
     protected void configure(AuthenticationManagerBuilder auth) throws Exception {
-        auth.userDetailsService(userDetailsService).passwordEncoder(bCryptPasswordEncoder);
+        // Outdated hashes are replaced on the next successful login
+        auth.userDetailsService(userDetailsService).passwordEncoder(passwordEncoder)
+                .userDetailsPasswordManager(userDetailsPasswordService);
     }
 
     @Override
     protected void configure(HttpSecurity http) throws Exception {
 
         CustomAuthenticationFilter customAuthFilter =
-                new CustomAuthenticationFilter(tokenService);
+                new CustomAuthenticationFilter(tokenService, passwordAuthenticator, hashingExecutor,
+                        attemptLimiter, jsonCodec);
 
         customAuthFilter.setAuthenticationManager(authenticationManagerBean());
+        customAuthFilter.setAuthenticationFailureHandler(
+                new AuthenticationEntryPointFailureHandler(authenticationExceptionHandler()));
 
         http.formLogin().disable();
         http.csrf().disable();
         http.sessionManagement().sessionCreationPolicy(STATELESS);
-        http.authorizeRequests().antMatchers(POST, "/auth/**").permitAll();
 
-        http.authorizeRequests().antMatchers(POST, "/users").permitAll();
-        http.authorizeRequests().antMatchers(GET, "/users").hasAuthority("ROLE_ADMIN");
-        http.authorizeRequests().antMatchers("/users/*/").hasAuthority("ROLE_USER");
+        // Rules are resolved in a single trie walk instead of trying the ant matchers in turn
+        RouteTrie routes = new RouteTrie(ROUTES);
 
+        http.authorizeHttpRequests().anyRequest().access(new RouteAuthorizationManager(routes, roleAuthorities));
 
-        http.authorizeRequests().antMatchers("/roles/**").hasAuthority("ROLE_ADMIN");
-        http.authorizeRequests().anyRequest().authenticated();
         http.exceptionHandling().accessDeniedHandler(accessDeniedHandler());
         http.exceptionHandling().authenticationEntryPoint(authenticationExceptionHandler());
         http.addFilterAt(customAuthFilter, UsernamePasswordAuthenticationFilter.class);
-        http.addFilterBefore(new CustomAuthorizationFilter(tokenService),
+        http.addFilterBefore(new CustomAuthorizationFilter(tokenService, routes),
                 UsernamePasswordAuthenticationFilter.class);
 
 
@@ -0,0 +1,116 @@
+package com.example.springjwt.security;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Count-min sketch split into time buckets, estimates how often a key was
+ * seen within the sliding window. Memory is fixed by the dimensions and all
+ * updates are lock-free, estimates may only overcount on hash collisions.
+ **/
+public class SlidingWindowSketch {
+
+    private static final int DEPTH = 4;
+
+    private final int width;
+
+    private final int buckets;
+
+    private final long bucketMillis;
+
+    // buckets x DEPTH x width counters
+    private final AtomicIntegerArray counters;
+
+    // Time slot which each bucket currently counts
+    private final AtomicLongArray slots;
+
+    public SlidingWindowSketch(long windowMillis, int buckets, int width) {
+
+        this.width = Integer.highestOneBit(Math.max(width, 16));
+        this.buckets = buckets;
+        this.bucketMillis = Math.max(1, windowMillis / buckets);
+        this.counters = new AtomicIntegerArray(buckets * DEPTH * this.width);
+        this.slots = new AtomicLongArray(buckets);
+    }
+
+    /**
+     * Counts one occurrence of the key
+     **/
+    public void add(String key, long now) {
+
+        long slot = now / bucketMillis;
+        int bucket = rotate(slot);
+
+        int h1 = mix(key.hashCode());
+        int h2 = mix(h1 ^ 0x9E3779B9);
+
+        for (int row = 0; row < DEPTH; row++)
+            counters.incrementAndGet(index(bucket, row, h1 + row * h2));
+    }
+
+    /**
+     * Occurrences of the key within the window, never less than the real count
+     **/
+    public int estimate(String key, long now) {
+
+        long slot = now / bucketMillis;
+
+        int h1 = mix(key.hashCode());
+        int h2 = mix(h1 ^ 0x9E3779B9);
+
+        int estimate = Integer.MAX_VALUE;
+
+        for (int row = 0; row < DEPTH; row++) {
+
+            int sum = 0;
+
+            for (int bucket = 0; bucket < buckets; bucket++) {
+                if (slot - slots.get(bucket) < buckets)
+                    sum += counters.get(index(bucket, row, h1 + row * h2));
+            }
+
+            estimate = Math.min(estimate, sum);
+        }
+
+        return estimate;
+    }
+
+    /**
+     * Milliseconds until the current bucket is closed
+     **/
+    public long millisToNextBucket(long now) {
+        return bucketMillis - now % bucketMillis;
+    }
+
+    // Clears a bucket when it is reused for a new time slot, increments racing with the clear may be lost
+    private int rotate(long slot) {
+
+        int bucket = (int) (slot % buckets);
+
+        long current = slots.get(bucket);
+
+        if (current != slot && slots.compareAndSet(bucket, current, slot)) {
+
+            int from = bucket * DEPTH * width;
+
+            for (int i = from; i < from + DEPTH * width; i++)
+                counters.lazySet(i, 0);
+        }
+
+        return bucket;
+    }
+
+    private int index(int bucket, int row, int hash) {
+        return (bucket * DEPTH + row) * width + (hash & (width - 1));
+    }
+
+    // Finalizer of MurmurHash3, spreads the String hash over all bits
+    private static int mix(int h) {
+        h ^= h >>> 16;
+        h *= 0x85EBCA6B;
+        h ^= h >>> 13;
+        h *= 0xC2B2AE35;
+        h ^= h >>> 16;
+        return h;
+    }
+}
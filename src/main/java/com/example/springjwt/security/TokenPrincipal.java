@@ -0,0 +1,47 @@
+package com.example.springjwt.security;
+
+import lombok.EqualsAndHashCode;
+import org.springframework.security.core.AuthenticatedPrincipal;
+
+/**
+ * Immutable principal of a verified access token, built from its claims alone.
+ * Authority checks are bit tests on its roles.
+ **/
+@EqualsAndHashCode
+public final class TokenPrincipal implements AuthenticatedPrincipal {
+
+    private final String name;
+
+    // 0 for the tokens issued before the user id claim
+    private final long userId;
+
+    private final RoleSet roles;
+
+    public TokenPrincipal(String name, long userId, RoleSet roles) {
+        this.name = name;
+        this.userId = userId;
+        this.roles = roles;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    public long getUserId() {
+        return userId;
+    }
+
+    public RoleSet getRoles() {
+        return roles;
+    }
+
+    public boolean hasRole(int roleId) {
+        return roles.contains(roleId);
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
@@ -0,0 +1,233 @@
+package com.example.springjwt.security;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Bounded cache of the AuthUser snapshots of signin, expiring after a TTL.
+ * Loading is single-flight: concurrent misses of the same username wait for
+ * the one load in progress instead of querying again.
+ *
+ * Changes of a user evict its entry at once and again after the transaction
+ * completes, so a load which read the old row before the commit is never kept.
+ **/
+@Component
+public class UserDetailsCache {
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+    private final AtomicBoolean sweeping = new AtomicBoolean();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder loadNanos = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+
+    private final long ttlMillis;
+
+    private final int maxSize;
+
+    public UserDetailsCache(@Value("${auth.user-cache.ttl-ms:30000}") long ttlMillis,
+                            @Value("${auth.user-cache.max-size:10000}") int maxSize) {
+        this.ttlMillis = ttlMillis;
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Returns the cached user or loads it, null results are not cached
+     **/
+    public AuthUser get(String username, Function<String, AuthUser> loader) {
+        return get(username, loader, System.currentTimeMillis());
+    }
+
+    AuthUser get(String username, Function<String, AuthUser> loader, long now) {
+
+        while (true) {
+
+            Entry entry = entries.get(username);
+
+            if (entry != null && entry.loadedAt + ttlMillis > now) {
+                hits.increment();
+                return entry.join();
+            }
+
+            Entry loading = new Entry(now);
+
+            boolean installed = entry == null
+                    ? entries.putIfAbsent(username, loading) == null
+                    : entries.replace(username, entry, loading);
+
+            // Another thread started loading, wait for it on the next round
+            if (!installed)
+                continue;
+
+            if (entry != null)
+                evictions.increment();
+
+            misses.increment();
+
+            if (entries.size() > maxSize)
+                makeRoom(now);
+
+            return load(username, loader, loading);
+        }
+    }
+
+    /**
+     * Evicts the user now and again when the current transaction completes
+     **/
+    public void evict(String username) {
+
+        invalidate(username);
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    invalidate(username);
+                }
+            });
+        }
+    }
+
+    public void clear() {
+        entries.clear();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public double getHitRatio() {
+
+        long hits = getHits();
+        long total = hits + getMisses();
+
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+    public long getTotalLoadTimeNanos() {
+        return loadNanos.sum();
+    }
+
+    // Every miss is one load
+    public long getAverageLoadTimeNanos() {
+
+        long loads = getMisses();
+
+        return loads == 0 ? 0 : getTotalLoadTimeNanos() / loads;
+    }
+
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    public long getInvalidations() {
+        return invalidations.sum();
+    }
+
+    private AuthUser load(String username, Function<String, AuthUser> loader, Entry loading) {
+
+        long start = System.nanoTime();
+
+        try {
+            AuthUser user = loader.apply(username);
+
+            if (user == null)
+                entries.remove(username, loading);
+
+            loading.future.complete(user);
+
+            return user;
+
+        } catch (RuntimeException e) {
+
+            // Waiters get the same failure, the next call loads again
+            entries.remove(username, loading);
+            loading.future.completeExceptionally(e);
+
+            throw e;
+
+        } finally {
+            loadNanos.add(System.nanoTime() - start);
+        }
+    }
+
+    private void invalidate(String username) {
+        if (entries.remove(username) != null)
+            invalidations.increment();
+    }
+
+    /**
+     * Drops expired entries first, when the cache is still full arbitrary
+     * entries are evicted until one tenth of it is free again
+     **/
+    private void makeRoom(long now) {
+
+        if (!sweeping.compareAndSet(false, true))
+            return;
+
+        try {
+            Iterator<Entry> iterator = entries.values().iterator();
+
+            while (iterator.hasNext()) {
+                if (iterator.next().loadedAt + ttlMillis <= now) {
+                    iterator.remove();
+                    evictions.increment();
+                }
+            }
+
+            int target = maxSize - Math.max(1, maxSize / 10);
+
+            iterator = entries.values().iterator();
+
+            while (entries.size() > target && iterator.hasNext()) {
+                iterator.next();
+                iterator.remove();
+                evictions.increment();
+            }
+
+        } finally {
+            sweeping.set(false);
+        }
+    }
+
+    private static final class Entry {
+
+        // Start of the load, the TTL counts from the query not from its result
+        private final long loadedAt;
+
+        private final CompletableFuture<AuthUser> future = new CompletableFuture<>();
+
+        private Entry(long loadedAt) {
+            this.loadedAt = loadedAt;
+        }
+
+        AuthUser join() {
+            try {
+                return future.join();
+            } catch (RuntimeException e) {
+                throw PasswordHashingExecutor.unwrap(e);
+            }
+        }
+    }
+}
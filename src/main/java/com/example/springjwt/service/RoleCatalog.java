@@ -0,0 +1,231 @@
+package com.example.springjwt.service;
+
+import com.example.springjwt.entity.Role;
+import com.example.springjwt.repository.CatalogVersionRepo;
+import com.example.springjwt.repository.RoleRepo;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.example.springjwt.util.SecurityConstant.ROLE_CATALOG_MISS_CHECK_MILLIS;
+
+/**
+ * Roles served from an immutable in-memory snapshot, the role set changes
+ * rarely while it is read on every signup and role assignment.
+ *
+ * A role saved on this node is added to a copy of the snapshot which replaces
+ * it after the commit. Every change bumps the `roles` catalog version, the
+ * other nodes reload their snapshot when they see a new version.
+ * The roles of the snapshot are never handed out, callers get copies which
+ * they may attach to entities.
+ **/
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class RoleCatalog {
+
+    static final String CATALOG = "roles";
+
+    private final RoleRepo roleRepo;
+    private final CatalogVersionRepo versionRepo;
+
+    private volatile Snapshot snapshot;
+
+    // Earliest time of the next version check for an unknown name
+    private final AtomicLong nextMissCheck = new AtomicLong();
+
+    public List<Role> getRoles() {
+
+        List<Role> roles = new ArrayList<>();
+
+        for (Role role : snapshot().ordered)
+            roles.add(copy(role));
+
+        return roles;
+    }
+
+    /**
+     * Returns a copy of the role or null. An unknown name checks the version
+     * in case the role was added on another node, at most once per
+     * ROLE_CATALOG_MISS_CHECK_MILLIS, otherwise the scheduled poll finds it.
+     **/
+    public Role findByName(String name) {
+
+        Role role = snapshot().byName.get(name);
+
+        if (role == null && missCheckDue() && refreshIfChanged())
+            role = snapshot.byName.get(name);
+
+        return role != null ? copy(role) : null;
+    }
+
+    public Role findById(short id) {
+
+        Role role = snapshot().byId.get(id);
+
+        return role != null ? copy(role) : null;
+    }
+
+    public long getVersion() {
+        return snapshot().version;
+    }
+
+    @Scheduled(initialDelayString = "${auth.role-catalog.poll-ms:10000}",
+            fixedDelayString = "${auth.role-catalog.poll-ms:10000}")
+    public void poll() {
+        refreshIfChanged();
+    }
+
+    /**
+     * Reloads the snapshot when the catalog version changed, returns true when it was replaced
+     **/
+    public synchronized boolean refreshIfChanged() {
+
+        Snapshot current = snapshot;
+
+        if (current != null && current.version == currentVersion())
+            return false;
+
+        reload();
+
+        return true;
+    }
+
+    /**
+     * Records a role saved in the current transaction, the snapshot is
+     * replaced once the transaction commits
+     **/
+    public void added(Role role) {
+
+        long version = versionRepo.increment(CATALOG);
+
+        Role copy = copy(role);
+
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            apply(copy, version);
+            return;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                apply(copy, version);
+            }
+        });
+    }
+
+    private synchronized void apply(Role role, long version) {
+
+        Snapshot current = snapshot;
+
+        // Any other version in between means changes of other nodes were missed
+        if (current != null && current.version == version - 1)
+            snapshot = current.with(role, version);
+        else
+            reload();
+    }
+
+    private Snapshot snapshot() {
+
+        Snapshot current = snapshot;
+
+        if (current != null)
+            return current;
+
+        synchronized (this) {
+            if (snapshot == null)
+                reload();
+
+            return snapshot;
+        }
+    }
+
+    // The version is read first, roles committed in between only cause another reload
+    private void reload() {
+
+        long version = currentVersion();
+
+        List<Role> roles = new ArrayList<>();
+
+        for (Role role : roleRepo.findAllByOrderById())
+            roles.add(copy(role));
+
+        snapshot = new Snapshot(version, roles);
+
+        log.debug("Role catalog version {} is loaded with {} roles", version, roles.size());
+    }
+
+    // Unknown names must not reach the database and the lock on every call
+    private boolean missCheckDue() {
+
+        long now = System.currentTimeMillis();
+        long next = nextMissCheck.get();
+
+        return now >= next && nextMissCheck.compareAndSet(next, now + ROLE_CATALOG_MISS_CHECK_MILLIS);
+    }
+
+    private static Role copy(Role role) {
+
+        Role copy = new Role(role.getId(), role.getName());
+        copy.setVersion(role.getVersion());
+
+        return copy;
+    }
+
+    private long currentVersion() {
+
+        Long version = versionRepo.findVersion(CATALOG);
+
+        return version != null ? version : 0;
+    }
+
+    private static final class Snapshot {
+
+        private final long version;
+
+        private final List<Role> ordered;
+
+        private final Map<String, Role> byName;
+
+        private final Map<Short, Role> byId;
+
+        private Snapshot(long version, List<Role> roles) {
+
+            this.version = version;
+
+            List<Role> ordered = new ArrayList<>(roles);
+            ordered.sort((first, second) -> Short.compare(first.getId(), second.getId()));
+
+            Map<String, Role> byName = new HashMap<>();
+            Map<Short, Role> byId = new HashMap<>();
+
+            for (Role role : ordered) {
+                byName.put(role.getName(), role);
+                byId.put(role.getId(), role);
+            }
+
+            this.ordered = List.copyOf(ordered);
+            this.byName = Map.copyOf(byName);
+            this.byId = Map.copyOf(byId);
+        }
+
+        Snapshot with(Role role, long version) {
+
+            List<Role> roles = new ArrayList<>(ordered);
+
+            roles.removeIf(existing -> existing.getId() == role.getId());
+            roles.add(role);
+
+            return new Snapshot(version, roles);
+        }
+    }
+}
@@ -9,6 +9,8 @@ public interface RoleService extends Repository<Role, Short> {
 
     List<Role> getRoles();
 
+    long getRolesVersion();
+
     Role saveRole(Role role);
 
     void addRoleToUser(String username, String roleName);
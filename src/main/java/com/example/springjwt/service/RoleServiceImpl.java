@@ -2,8 +2,11 @@ package com.example.springjwt.service;
 
 import com.example.springjwt.entity.Role;
 import com.example.springjwt.entity.User;
+import com.example.springjwt.exception.ApiRequestException;
 import com.example.springjwt.repository.RoleRepo;
 import com.example.springjwt.repository.UserRepo;
+import com.example.springjwt.security.RoleAuthorities;
+import com.example.springjwt.security.UserDetailsCache;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 
@@ -17,25 +20,47 @@ public class RoleServiceImpl implements RoleService {
 
     private final RoleRepo roleRepo;
     private final UserRepo userRepo;
+    private final RoleCatalog roleCatalog;
+    private final RoleAuthorities roleAuthorities;
+    private final UserDetailsCache userDetailsCache;
 
     @Override
     public List<Role> getRoles() {
-        return roleRepo.findAllByOrderById();
+        return roleCatalog.getRoles();
+    }
+
+    /**
+     * Version of the role catalog, every saved role increments it
+     **/
+    @Override
+    public long getRolesVersion() {
+        return roleCatalog.getVersion();
     }
 
 
     @Override
     public Role saveRole(Role role) {
-        return roleRepo.save(role);
+
+        Role saved = roleRepo.save(role);
+
+        roleCatalog.added(saved);
+        roleAuthorities.register(saved);
+
+        return saved;
     }
 
     @Override
     public void addRoleToUser(String username, String roleName) {
 
         User user = userRepo.findByUserName(username);
-        Role role = roleRepo.findByName(roleName);
+        Role role = roleCatalog.findByName(roleName);
+
+        if (role == null)
+            throw new ApiRequestException("Role is not exist!");
 
         user.getRoles().add(role);
 
+        userDetailsCache.evict(username);
+
     }
 }
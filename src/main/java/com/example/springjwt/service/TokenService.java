@@ -1,24 +1,22 @@
 package com.example.springjwt.service;
 
 import com.example.springjwt.entity.User;
-import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
-
-import java.util.Map;
+import com.example.springjwt.util.TokenPair;
+import com.example.springjwt.util.TokenVerification;
+import org.springframework.security.core.Authentication;
 
 
 public interface TokenService {
 
 
-    Map<String, String> createTokens(String userName);
+    TokenPair createTokens(Authentication authentication);
 
-    Map<String, String> createTokens(User user);
+    TokenPair createTokens(User user);
 
-    UsernamePasswordAuthenticationToken getAuthToken(String token);
+    TokenVerification verifyAccessToken(String token);
 
-    Map<String, String> refreshTokens(String refreshToken);
+    TokenPair refreshTokens(String refreshToken);
 
     void deleteRefreshToken(String token);
 
-    void cleanExpiredTokens();
-
 }
@@ -1,20 +1,30 @@
 package com.example.springjwt.service;
 
-import com.example.springjwt.entity.RefreshToken;
 import com.example.springjwt.entity.User;
 import com.example.springjwt.exception.ApiRequestException;
+import com.example.springjwt.repository.RefreshTokenOwner;
 import com.example.springjwt.repository.RefreshTokenRepo;
 import com.example.springjwt.repository.UserRepo;
+import com.example.springjwt.security.AuthUser;
 import com.example.springjwt.util.JwtTokenUtil;
+import com.example.springjwt.util.TokenPair;
+import com.example.springjwt.util.TokenStatus;
+import com.example.springjwt.util.TokenVerification;
+import com.example.springjwt.util.VerifiedTokenCache;
 import lombok.RequiredArgsConstructor;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
 
 import javax.transaction.Transactional;
 import java.time.LocalDate;
-import java.util.Map;
+import java.util.List;
 
 import static com.example.springjwt.util.SecurityConstant.EXPIRES_MONTH_REFRESH_TOKEN;
+import static com.example.springjwt.util.SecurityConstant.REFRESH_TOKEN_ATTEMPTS;
+import static com.example.springjwt.util.SecurityConstant.REFRESH_TOKEN_REUSE_DETECTION_DAYS;
 
 @Service
 @RequiredArgsConstructor
@@ -24,98 +34,139 @@ public class TokenServiceImpl implements TokenService {
     private final RefreshTokenRepo tokenRepo;
     private final UserRepo userRepo;
     private final JwtTokenUtil jwtUtil;
+    private final VerifiedTokenCache tokenCache;
 
 
-    private RefreshToken createRefreshToken(User user) {
+    /**
+     * Creates a refresh token of the session chain, a new chain is started when family is null
+     **/
+    private String createRefreshToken(long userId, String family) {
 
-        RefreshToken refreshToken = new RefreshToken();
+        LocalDate expiryDate = LocalDate.now().plusMonths(EXPIRES_MONTH_REFRESH_TOKEN);
 
-        // Generate refresh token
-        String token;
+        // 128 random bits practically never collide,
+        // the unique constraint on the token column catches the rest
+        for (int attempt = 1; ; attempt++) {
 
-        // Until the refresh token is unique
-        do {
+            String token = jwtUtil.generateRefreshToken();
 
-            token = jwtUtil.generateRefreshToken();
+            try {
+                tokenRepo.insert(token, family != null ? family : token, userId, expiryDate);
 
-        } while (tokenRepo.existsRefreshTokenByToken(token));
+                return token;
 
+            } catch (DuplicateKeyException e) {
 
-        refreshToken.setUser(user);
-        refreshToken.setToken(token);
-        refreshToken.setExpiryDate(LocalDate.now().plusMonths(EXPIRES_MONTH_REFRESH_TOKEN));
+                if (attempt == REFRESH_TOKEN_ATTEMPTS)
+                    throw e;
+            }
+        }
+    }
+
+    private TokenPair createTokens(AuthUser user, String family) {
+
+        String accessToken = jwtUtil.createJwtToken(user);
 
-        tokenRepo.save(refreshToken);
+        String refreshToken = createRefreshToken(user.getId(), family);
 
-        return refreshToken;
+        return new TokenPair(accessToken, refreshToken);
     }
 
+    /**
+     * Issues the tokens of an authenticated user. The AuthUser of the signin
+     * is used as it is, principals of other user sources are loaded by name.
+     **/
     @Override
-    public Map<String, String> createTokens(String userName) {
+    public TokenPair createTokens(Authentication authentication) {
 
-        User user = userRepo.findByUserName(userName);
+        if (authentication.getPrincipal() instanceof AuthUser)
+            return createTokens((AuthUser) authentication.getPrincipal(), null);
 
-        String access_token = jwtUtil.createJwtToken(user);
+        AuthUser user = AuthUser.of(userRepo.findCredentialsByUserName(authentication.getName()));
 
-        RefreshToken refreshToken = createRefreshToken(user);
+        if (user == null)
+            throw new UsernameNotFoundException("User is not exist!");
 
-        return Map.of("access_token", access_token,
-                "refresh_token", refreshToken.getToken());
+        return createTokens(user, null);
 
     }
 
     @Override
-    public Map<String, String> createTokens(User user) {
+    public TokenPair createTokens(User user) {
 
+        String accessToken = jwtUtil.createJwtToken(user);
 
-        String access_token = jwtUtil.createJwtToken(user);
+        String refreshToken = createRefreshToken(user.getId(), null);
 
-        RefreshToken refreshToken = createRefreshToken(user);
-
-        return Map.of("access_token", access_token,
-                "refresh_token", refreshToken.getToken());
+        return new TokenPair(accessToken, refreshToken);
 
     }
 
+    /**
+     * Garbage is rejected by the layout check before the cache digest is
+     * computed, stale tokens before the HMAC. Verification never touches the
+     * database, so no transaction is opened per request.
+     **/
     @Override
-    public UsernamePasswordAuthenticationToken getAuthToken(String token) {
-        return jwtUtil.getAuthToken(token);
-    }
+    @Transactional(Transactional.TxType.SUPPORTS)
+    public TokenVerification verifyAccessToken(String token) {
 
-    @Override
-    public Map<String, String> refreshTokens(String refreshToken) {
+        if (!jwtUtil.isWellFormed(token))
+            return TokenVerification.failed(TokenStatus.MALFORMED);
 
-        RefreshToken token = tokenRepo.findByToken(refreshToken);
+        UsernamePasswordAuthenticationToken authToken = tokenCache.get(token);
 
-        if (token != null) {
+        if (authToken != null)
+            return TokenVerification.authenticated(authToken);
 
-            tokenRepo.delete(token);
+        TokenVerification verification = jwtUtil.checkToken(token);
 
-            return createTokens(token.getUser());
-        } else
-            throw new ApiRequestException("Invalid refresh token");
+        if (verification.isValid())
+            tokenCache.put(token, verification.getAuthToken(), verification.getClaims().getExpiresAt());
 
+        return verification;
     }
 
+    /**
+     * Refresh tokens are single-use. Only one of concurrent refreshes can consume
+     * the token, a token which was already consumed is treated as stolen and
+     * the whole session chain of it is revoked.
+     * The consume is followed by one read of the token state and the owner
+     * credentials. Consumed tokens are kept for the reuse detection days only,
+     * expired tokens are rejected here and deleting both is left to the reaper.
+     **/
     @Override
-    public void deleteRefreshToken(String token) {
+    @Transactional(dontRollbackOn = ApiRequestException.class)
+    public TokenPair refreshTokens(String refreshToken) {
+
+        LocalDate today = LocalDate.now();
 
-        RefreshToken refreshToken = tokenRepo.findByToken(token);
+        int consumed = tokenRepo.consume(refreshToken, today, today.plusDays(REFRESH_TOKEN_REUSE_DETECTION_DAYS));
 
-        if (refreshToken != null)
-            tokenRepo.delete(refreshToken);
+        List<RefreshTokenOwner> owner = tokenRepo.findOwnerByToken(refreshToken);
 
-        else
+        if (owner.isEmpty())
             throw new ApiRequestException("Invalid refresh token");
 
-    }
+        if (consumed == 0) {
+
+            if (!owner.get(0).isConsumed())
+                throw new ApiRequestException("Refresh token is expired");
 
+            tokenRepo.deleteAllByFamily(owner.get(0).getFamily());
+
+            throw new ApiRequestException("Invalid refresh token");
+        }
+
+        return createTokens(AuthUser.of(owner), owner.get(0).getFamily());
+    }
 
     @Override
-    public void cleanExpiredTokens() {
+    public void deleteRefreshToken(String token) {
 
-        LocalDate now = LocalDate.now();
+        if (tokenRepo.deleteUnconsumedByToken(token) == 0)
+            throw new ApiRequestException("Invalid refresh token");
 
-        tokenRepo.deleteAllByExpiryDateBefore(now);
     }
+
 }
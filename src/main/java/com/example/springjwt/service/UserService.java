@@ -1,20 +1,29 @@
 package com.example.springjwt.service;
 
 import com.example.springjwt.entity.User;
+import com.example.springjwt.repository.UserField;
+import com.example.springjwt.repository.UserVersion;
+import com.example.springjwt.repository.UserView;
 
 import java.security.Principal;
 import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
 
 public interface UserService {
 
     User saveUser(User user);
 
-    User getUser(String username, Principal principal);
+    UserView getUser(String username, Set<UserField> fields, Principal principal);
 
-    void updateUser(User user, Principal principal);
+    UserVersion getUserVersion(String username, Principal principal);
+
+    void updateUser(User user, Long expectedVersion, Principal principal);
 
     void deleteUser(String username, Principal principal);
 
-    List<User> getUsers();
+    List<UserView> getUsers(long after, int limit, Set<UserField> fields);
+
+    void forEachUser(Set<UserField> fields, Consumer<UserView> action);
 
 }
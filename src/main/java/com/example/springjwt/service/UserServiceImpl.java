@@ -4,11 +4,22 @@ package com.example.springjwt.service;
 import com.example.springjwt.entity.Role;
 import com.example.springjwt.entity.User;
 import com.example.springjwt.exception.ApiRequestException;
-import com.example.springjwt.repository.RoleRepo;
 import com.example.springjwt.repository.UserRepo;
+import com.example.springjwt.repository.UserField;
+import com.example.springjwt.repository.UserVersion;
+import com.example.springjwt.repository.UserView;
+import com.example.springjwt.security.AuthUser;
+import com.example.springjwt.security.PasswordHashingExecutor;
+import com.example.springjwt.security.RoleAuthorities;
+import com.example.springjwt.security.TokenPrincipal;
+import com.example.springjwt.security.UserDetailsCache;
 import lombok.RequiredArgsConstructor;
-import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.security.crypto.password.PasswordEncoder;
@@ -16,55 +27,109 @@ import org.springframework.stereotype.Service;
 
 import javax.transaction.Transactional;
 import java.security.Principal;
-import java.util.ArrayList;
-import java.util.Collection;
 import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
 
 @Service
 @RequiredArgsConstructor
 @Transactional
-public class UserServiceImpl implements UserService, UserDetailsService {
+public class UserServiceImpl implements UserService, UserDetailsService, UserDetailsPasswordService {
 
     private final UserRepo userRepo;
-    private final RoleRepo roleRepo;
+    private final RoleCatalog roleCatalog;
     private final PasswordEncoder passwordEncoder;
+    private final PasswordHashingExecutor hashingExecutor;
+    private final RoleAuthorities roleAuthorities;
+    private final UserDetailsCache userDetailsCache;
 
 
-    private boolean isOwnerOrAdmin(User attemptUser, User data) {
+    /**
+     * Decided on the claims of the access token without loading the principal.
+     * Other authentications, like the mock users of the tests, are checked by
+     * their authorities and name.
+     **/
+    private boolean isOwnerOrAdmin(Principal principal, long userId, String userName) {
 
-        var isAdmin = attemptUser.getRoles().stream()
-                .anyMatch(role -> role.getName().equals("ROLE_ADMIN"));
+        if (!(principal instanceof Authentication))
+            return principal.getName().equals(userName);
 
-        var isOwner = attemptUser.getId() == data.getId();
+        Authentication authentication = (Authentication) principal;
 
-        return isAdmin || isOwner;
+        if (authentication.getPrincipal() instanceof TokenPrincipal) {
+
+            TokenPrincipal tokenPrincipal = (TokenPrincipal) authentication.getPrincipal();
+
+            if (tokenPrincipal.hasRole(roleAuthorities.idOf("ROLE_ADMIN")))
+                return true;
+
+            // Tokens issued before the user id claim are owned by name
+            return tokenPrincipal.getUserId() != 0
+                    ? tokenPrincipal.getUserId() == userId
+                    : tokenPrincipal.getName().equals(userName);
+        }
+
+        for (GrantedAuthority authority : authentication.getAuthorities()) {
+            if (roleAuthorities.implies(authority.getAuthority(), "ROLE_ADMIN"))
+                return true;
+        }
+
+        return authentication.getName().equals(userName);
     }
 
 
+    // Hashing is CPU bound, it runs on the bounded hashing pool instead of the request thread
+    private String encodePassword(String password) {
+        return hashingExecutor.call(() -> passwordEncoder.encode(password));
+    }
+
+
+    /**
+     * Reads the user and its roles with one projection query, the returned
+     * AuthUser is also what the tokens of the signin are issued for.
+     * Snapshots are cached until the user changes or their TTL passes.
+     **/
     @Override
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
 
-        User user = userRepo.findByUserName(username);
+        AuthUser user = userDetailsCache.get(username,
+                name -> AuthUser.of(userRepo.findCredentialsByUserName(name)));
 
         if (user == null)
             throw new UsernameNotFoundException("User is not exist!");
 
-        Collection<SimpleGrantedAuthority> authorities = new ArrayList<>();
+        return user;
+    }
+
+    /**
+     * Called after a successful login with the password re-encoded by the
+     * current encoder, when the stored hash has outdated parameters.
+     * Users of other sources are loaded again as AuthUser.
+     **/
+    @Override
+    public UserDetails updatePassword(UserDetails user, String newPassword) {
 
+        userRepo.updatePassword(user.getUsername(), newPassword);
 
-        user.getRoles().forEach(role -> authorities.add(new SimpleGrantedAuthority(role.getName())));
+        userDetailsCache.evict(user.getUsername());
 
+        if (user instanceof AuthUser)
+            return ((AuthUser) user).withPassword(newPassword);
 
-        return new org.springframework.security.core.userdetails.User(
-                user.getUserName(), user.getPassword(), authorities);
+        AuthUser updated = AuthUser.of(userRepo.findCredentialsByUserName(user.getUsername()));
+
+        if (updated == null)
+            throw new UsernameNotFoundException("User is not exist!");
+
+        return updated;
     }
 
     @Override
     public User saveUser(User user) {
 
-        Role userRole = roleRepo.findByName("ROLE_USER");
+        Role userRole = roleCatalog.findByName("ROLE_USER");
 
-        user.setPassword(passwordEncoder.encode(user.getPassword()));
+        user.setPassword(encodePassword(user.getPassword()));
 
         user.getRoles().add(userRole);
 
@@ -72,61 +137,114 @@ public class UserServiceImpl implements UserService, UserDetailsService {
         return userRepo.save(user);
     }
 
+    /**
+     * Reads only the selected fields, the id and the name for the ownership check are always read
+     **/
     @Override
-    public User getUser(String username, Principal principal) {
+    public UserView getUser(String username, Set<UserField> fields, Principal principal) {
 
-        var data = userRepo.findByUserName(username);
-        var principalUser = userRepo.findByUserName(principal.getName());
+        var data = userRepo.findViewByUserName(username, fields);
 
         if (data == null)
             throw new ApiRequestException("User is not exist!");
 
-        if (!isOwnerOrAdmin(principalUser, data))
+        if (!isOwnerOrAdmin(principal, data.getId(), data.getUserName()))
+            throw new ApiRequestException("You are not authorized to perform this action!");
+
+
+        return data;
+    }
+
+    /**
+     * Reads only the version, conditional requests which still match are answered without the user
+     **/
+    @Override
+    public UserVersion getUserVersion(String username, Principal principal) {
+
+        var version = userRepo.findVersionByUserName(username);
+
+        if (version == null)
+            throw new ApiRequestException("User is not exist!");
+
+        if (!isOwnerOrAdmin(principal, version.getId(), version.getUserName()))
             throw new ApiRequestException("You are not authorized to perform this action!");
 
 
-        return userRepo.findByUserName(username);
+        return version;
     }
 
+    /**
+     * Keyset page of the users with an id greater than `after`, the ids are
+     * selected first and their selected fields are read with one projection query
+     **/
     @Override
-    public List<User> getUsers() {
-        return userRepo.findAll();
+    public List<UserView> getUsers(long after, int limit, Set<UserField> fields) {
+
+        List<Long> ids = userRepo.findIdsAfter(after, PageRequest.of(0, limit));
+
+        return userRepo.findViewsByIdIn(ids, fields);
     }
 
+    /**
+     * Passes every user in id order to the action while the rows are read,
+     * only the user being assembled is kept in memory
+     **/
     @Override
-    public void updateUser(User user, Principal principal) {
+    public void forEachUser(Set<UserField> fields, Consumer<UserView> action) {
+        userRepo.forEachView(fields, action);
+    }
 
-        var principalUser = userRepo.findByUserName(principal.getName());
+    /**
+     * Updates the user when it still has the expected version, without one the
+     * version read here is expected. Edits committed in between fail on flush
+     * instead of being overwritten.
+     **/
+    @Override
+    public void updateUser(User user, Long expectedVersion, Principal principal) {
 
         if (user.getId() == 0)
             throw new ApiRequestException("User id must not empty !");
 
-        if (!userRepo.existsById(user.getId()))
+        // Ownership is checked against the stored name, not the one in the request
+        var existing = userRepo.findById(user.getId()).orElse(null);
+
+        if (existing == null)
             throw new ApiRequestException("User is not exist!");
 
-        if (!isOwnerOrAdmin(principalUser, user))
+        if (!isOwnerOrAdmin(principal, existing.getId(), existing.getUserName()))
             throw new ApiRequestException("You are not authorized to perform this action!");
 
 
-        user.setPassword(passwordEncoder.encode(user.getPassword()));
+        long version = expectedVersion != null ? expectedVersion : existing.getVersion();
+
+        if (version != existing.getVersion())
+            throw new ObjectOptimisticLockingFailureException(User.class, existing.getId());
+
+        user.setVersion(version);
 
-        userRepo.save(user);
+        user.setPassword(encodePassword(user.getPassword()));
+
+        // The name may change, both the old and the new one are evicted
+        userDetailsCache.evict(existing.getUserName());
+        userDetailsCache.evict(user.getUserName());
+
+        userRepo.saveAndFlush(user);
     }
 
     @Override
     public void deleteUser(String username, Principal principal) {
 
-        var principalUser = userRepo.findByUserName(principal.getName());
-
         User user = userRepo.findByUserName(username);
 
         if (user == null)
             throw new ApiRequestException("User is not exist!");
 
-        if (!isOwnerOrAdmin(principalUser, user))
+        if (!isOwnerOrAdmin(principal, user.getId(), user.getUserName()))
             throw new ApiRequestException("You are not authorized to perform this action!");
 
 
+        userDetailsCache.evict(username);
+
         userRepo.delete(user);
     }
 
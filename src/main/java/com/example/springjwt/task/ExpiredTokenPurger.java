@@ -0,0 +1,85 @@
+package com.example.springjwt.task;
+
+import com.example.springjwt.repository.RefreshTokenRepo;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Deletes expired refresh tokens in bounded batches. Every batch is a single
+ * bulk statement on the expiry date index and commits on its own, the pause
+ * between batches leaves room for online traffic.
+ **/
+@Slf4j
+@Component
+public class ExpiredTokenPurger {
+
+    private final RefreshTokenRepo tokenRepo;
+
+    private final int batchSize;
+
+    private final long pauseMillis;
+
+    public ExpiredTokenPurger(RefreshTokenRepo tokenRepo,
+                              @Value("${auth.refresh-token.purge.batch-size:1000}") int batchSize,
+                              @Value("${auth.refresh-token.purge.pause-ms:50}") long pauseMillis) {
+        this.tokenRepo = tokenRepo;
+        this.batchSize = batchSize;
+        this.pauseMillis = pauseMillis;
+    }
+
+    public PurgeReport purge(LocalDate expiryDate) {
+        return purge(expiryDate, null);
+    }
+
+    public PurgeReport purge(LocalDate expiryDate, Duration timeSlice) {
+        return purge(expiryDate, timeSlice, () -> true);
+    }
+
+    /**
+     * Purges until no expired token is left, the time slice is used up or
+     * keepRunning turns false, a null time slice means no limit
+     **/
+    public PurgeReport purge(LocalDate expiryDate, Duration timeSlice, BooleanSupplier keepRunning) {
+
+        long start = System.nanoTime();
+
+        long timeSliceNanos = timeSlice == null ? Long.MAX_VALUE : timeSlice.toNanos();
+
+        long rows = 0;
+        int batches = 0;
+
+        while (keepRunning.getAsBoolean()) {
+
+            int deleted = tokenRepo.deleteExpiredBefore(expiryDate, batchSize);
+
+            rows += deleted;
+            batches++;
+
+            if (deleted < batchSize || System.nanoTime() - start >= timeSliceNanos || !pause())
+                break;
+        }
+
+        PurgeReport report = new PurgeReport(rows, batches, Duration.ofNanos(System.nanoTime() - start));
+
+        if (report.getRows() > 0 || timeSlice == null)
+            log.info("Purged {} expired refresh tokens in {} batches, took {} ms",
+                    report.getRows(), report.getBatches(), report.getDuration().toMillis());
+
+        return report;
+    }
+
+    private boolean pause() {
+        try {
+            Thread.sleep(pauseMillis);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package com.example.springjwt.task;
+
+import com.example.springjwt.repository.MaintenanceLeaseRepo;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+
+/**
+ * Makes sure that a maintenance job runs on a single node of the cluster.
+ * The lease lives in the database and is kept alive by a heartbeat while the
+ * job runs. When the holder dies the lease expires and another node takes over.
+ * Lease times are database time, the nodes' own clocks are never compared.
+ **/
+@Slf4j
+@Component
+public class LeaseManager {
+
+    private final MaintenanceLeaseRepo leaseRepo;
+
+    private final String owner;
+
+    private final long ttlMillis;
+
+    private final long maxJitterMillis;
+
+    private final ScheduledExecutorService heartbeats = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "lease-heartbeat");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public LeaseManager(MaintenanceLeaseRepo leaseRepo,
+                        @Value("${auth.maintenance.lease.owner:}") String owner,
+                        @Value("${auth.maintenance.lease.ttl-ms:30000}") long ttlMillis,
+                        @Value("${auth.maintenance.lease.max-jitter-ms:5000}") long maxJitterMillis) {
+        this.leaseRepo = leaseRepo;
+        this.owner = owner.isBlank() ? defaultOwner() : owner;
+        this.ttlMillis = ttlMillis;
+        this.maxJitterMillis = maxJitterMillis;
+    }
+
+    /**
+     * Runs the job when this node gets the lease. The job gets a check which
+     * turns false once the lease is lost, and must stop then. After the job the
+     * lease is held until `holdFor` has passed since its acquisition, so that
+     * the other nodes skip the same round. Returns false when another node holds it.
+     **/
+    public boolean runExclusively(String name, Duration holdFor, Consumer<BooleanSupplier> job) {
+
+        // Nodes scheduled at the same moment should not hit the lease row together
+        if (!sleep(maxJitterMillis > 0 ? ThreadLocalRandom.current().nextLong(maxJitterMillis) : 0))
+            return false;
+
+        long ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMillis);
+
+        long acquiring = System.nanoTime();
+
+        if (!leaseRepo.acquire(name, owner, ttlMillis))
+            return false;
+
+        // Counted locally from before each statement, so it never outlasts the lease in the database
+        AtomicLong heldUntil = new AtomicLong(acquiring + ttlNanos);
+
+        AtomicBoolean lost = new AtomicBoolean();
+
+        long heartbeatMillis = Math.max(ttlMillis / 3, 1);
+
+        ScheduledFuture<?> heartbeat = heartbeats.scheduleAtFixedRate(() -> {
+
+            if (lost.get())
+                return;
+
+            long extending = System.nanoTime();
+
+            try {
+                if (leaseRepo.extend(name, owner, ttlMillis)) {
+                    heldUntil.set(extending + ttlNanos);
+                    return;
+                }
+            } catch (RuntimeException e) {
+                // Retried by the next heartbeat, the job stops when the lease runs out meanwhile
+                log.warn("Lease '{}' of {} could not be extended", name, owner, e);
+                return;
+            }
+
+            lost.set(true);
+            log.warn("Lease '{}' of {} is lost, the job is stopped", name, owner);
+
+        }, heartbeatMillis, heartbeatMillis, TimeUnit.MILLISECONDS);
+
+        try {
+            job.accept(() -> !lost.get() && System.nanoTime() - heldUntil.get() < 0);
+        } finally {
+            heartbeat.cancel(false);
+
+            leaseRepo.release(name, owner, holdFor.toMillis());
+        }
+
+        return true;
+    }
+
+    public String getOwner() {
+        return owner;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        heartbeats.shutdownNow();
+    }
+
+    private static boolean sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private static String defaultOwner() {
+        return ManagementFactory.getRuntimeMXBean().getName() + "/"
+                + UUID.randomUUID().toString().substring(0, 8);
+    }
+}
@@ -0,0 +1,19 @@
+package com.example.springjwt.task;
+
+import lombok.Value;
+
+import java.time.Duration;
+
+/**
+ * Result of a purge run: deleted rows, executed batches and elapsed time
+ **/
+@Value
+public class PurgeReport {
+
+    long rows;
+
+    int batches;
+
+    Duration duration;
+
+}
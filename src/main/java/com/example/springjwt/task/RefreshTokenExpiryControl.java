@@ -1,22 +1,36 @@
 package com.example.springjwt.task;
 
-import com.example.springjwt.service.TokenService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
+import java.time.Duration;
+import java.time.LocalDate;
+
 @Component
 @RequiredArgsConstructor
 public class RefreshTokenExpiryControl {
 
-    private final TokenService tokenService;
+    private final ExpiredTokenPurger tokenPurger;
+    private final LeaseManager leaseManager;
+
+    @Value("${auth.refresh-token.reaper.time-slice-ms:2000}")
+    private long timeSliceMillis;
+
+    @Value("${auth.refresh-token.reaper.interval-ms:300000}")
+    private long intervalMillis;
 
     /**
-     * Every new day cleanup expired tokens
+     * Every few minutes cleanup expired tokens for a small time slice.
+     * Expiry is enforced on refresh, so this only reclaims space.
+     * Only the node holding the lease runs it, and stops as soon as it loses the lease.
      **/
-    @Scheduled(cron = "0 0 0 * * ?")
+    @Scheduled(initialDelayString = "${auth.refresh-token.reaper.interval-ms:300000}",
+            fixedDelayString = "${auth.refresh-token.reaper.interval-ms:300000}")
     public void cleanExpiredRefreshTokens() {
-        tokenService.cleanExpiredTokens();
+        leaseManager.runExclusively("refresh-token-reaper", Duration.ofMillis(intervalMillis),
+                leaseHeld -> tokenPurger.purge(LocalDate.now(), Duration.ofMillis(timeSliceMillis), leaseHeld));
     }
 
 
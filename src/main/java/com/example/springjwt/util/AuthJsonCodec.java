@@ -0,0 +1,177 @@
+package com.example.springjwt.util;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import org.springframework.stereotype.Component;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+import static com.example.springjwt.util.SecurityConstant.AUTH_BODY_MAX_BYTES;
+import static org.springframework.http.MediaType.APPLICATION_JSON_VALUE;
+
+/**
+ * Reads and writes the bodies of the auth endpoints without an ObjectMapper.
+ * Request bodies are streamed through the Jackson parser up to a size cap,
+ * token responses are assembled from constant fragments in a per-thread buffer.
+ **/
+@Component
+public class AuthJsonCodec {
+
+    private static final byte[] ACCESS_TOKEN_FIELD = "{\"access_token\":\"".getBytes(StandardCharsets.US_ASCII);
+
+    private static final byte[] REFRESH_TOKEN_FIELD = "\",\"refresh_token\":\"".getBytes(StandardCharsets.US_ASCII);
+
+    private static final byte[] END = "\"}".getBytes(StandardCharsets.US_ASCII);
+
+    private static final ThreadLocal<byte[]> BUFFER = ThreadLocal.withInitial(() -> new byte[512]);
+
+    private final JsonFactory jsonFactory = new JsonFactory()
+            .disable(JsonParser.Feature.AUTO_CLOSE_SOURCE);
+
+    /**
+     * Returns the "username" and "password" fields, a field is null when it is missing
+     **/
+    public String[] readCredentials(HttpServletRequest request) throws IOException {
+        return readFields(request, "username", "password");
+    }
+
+    /**
+     * Returns the "token" field, null when it is missing
+     **/
+    public String readRefreshToken(HttpServletRequest request) throws IOException {
+        return readFields(request, "token")[0];
+    }
+
+    /**
+     * Tokens are base64url or hex, so they are written without escaping
+     **/
+    public void writeTokens(TokenPair tokens, HttpServletResponse response) throws IOException {
+
+        String accessToken = tokens.getAccessToken();
+        String refreshToken = tokens.getRefreshToken();
+
+        int length = ACCESS_TOKEN_FIELD.length + accessToken.length()
+                + REFRESH_TOKEN_FIELD.length + refreshToken.length() + END.length;
+
+        byte[] buffer = BUFFER.get();
+
+        if (buffer.length < length) {
+            buffer = new byte[Integer.highestOneBit(length) << 1];
+            BUFFER.set(buffer);
+        }
+
+        int offset = append(buffer, 0, ACCESS_TOKEN_FIELD);
+        offset = append(buffer, offset, accessToken);
+        offset = append(buffer, offset, REFRESH_TOKEN_FIELD);
+        offset = append(buffer, offset, refreshToken);
+        offset = append(buffer, offset, END);
+
+        response.setContentType(APPLICATION_JSON_VALUE);
+        response.setContentLength(offset);
+        response.getOutputStream().write(buffer, 0, offset);
+    }
+
+    // Top level string fields of a JSON object, other values are skipped without being materialized
+    private String[] readFields(HttpServletRequest request, String... names) throws IOException {
+
+        if (request.getContentLengthLong() > AUTH_BODY_MAX_BYTES)
+            throw new IOException("Request body is too large");
+
+        String[] values = new String[names.length];
+
+        try (JsonParser parser = jsonFactory.createParser(new CappedInputStream(request.getInputStream()))) {
+
+            if (parser.nextToken() != JsonToken.START_OBJECT)
+                throw new JsonParseException(parser, "Request body must be a JSON object");
+
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+
+                String field = parser.getCurrentName();
+
+                JsonToken value = parser.nextToken();
+
+                int index = indexOf(names, field);
+
+                if (index >= 0 && value == JsonToken.VALUE_STRING)
+                    values[index] = parser.getText();
+                else
+                    parser.skipChildren();
+            }
+
+            if (parser.currentToken() != JsonToken.END_OBJECT)
+                throw new JsonParseException(parser, "Unexpected end of the request body");
+        }
+
+        return values;
+    }
+
+    private static int indexOf(String[] names, String field) {
+
+        for (int i = 0; i < names.length; i++) {
+            if (names[i].equals(field))
+                return i;
+        }
+
+        return -1;
+    }
+
+    private static int append(byte[] buffer, int offset, byte[] fragment) {
+        System.arraycopy(fragment, 0, buffer, offset, fragment.length);
+        return offset + fragment.length;
+    }
+
+    private static int append(byte[] buffer, int offset, String ascii) {
+
+        for (int i = 0; i < ascii.length(); i++)
+            buffer[offset++] = (byte) ascii.charAt(i);
+
+        return offset;
+    }
+
+    // Chunked bodies have no Content-Length, the cap is enforced while reading
+    private static class CappedInputStream extends FilterInputStream {
+
+        private long remaining = AUTH_BODY_MAX_BYTES;
+
+        CappedInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+
+            int b = super.read();
+
+            if (b >= 0)
+                consumed(1);
+
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+
+            int n = super.read(b, off, (int) Math.min(len, remaining + 1));
+
+            if (n > 0)
+                consumed(n);
+
+            return n;
+        }
+
+        private void consumed(int n) throws IOException {
+
+            remaining -= n;
+
+            if (remaining < 0)
+                throw new IOException("Request body is too large");
+        }
+    }
+}
@@ -0,0 +1,562 @@
+package com.example.springjwt.util;
+
+import com.auth0.jwt.algorithms.Algorithm;
+import com.auth0.jwt.exceptions.InvalidClaimException;
+import com.auth0.jwt.exceptions.JWTDecodeException;
+import com.auth0.jwt.exceptions.SignatureVerificationException;
+import com.auth0.jwt.exceptions.TokenExpiredException;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.io.JsonStringEncoder;
+
+import javax.crypto.Mac;
+import javax.crypto.ShortBufferException;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Signs and verifies HS256 access tokens without going through the generic JWT builder.
+ * Tokens are byte-identical to the ones produced by auth0 java-jwt:
+ * header `{"typ":"JWT","alg":"HS256"}` and payload `{"sub":..,"roles":[..],"iss":..,"exp":..}`.
+ * Tokens issued now carry the user id as a `uid` claim and the roles as an
+ * `rm` bitmask claim in place of the `roles` array, both forms are accepted
+ * when verifying.
+ * Every thread reuses its own Mac instance and scratch buffers.
+ **/
+public class HmacTokenEngine {
+
+    private static final String ALGORITHM = "HmacSHA256";
+
+    private static final int SIGNATURE_LENGTH = 32;
+
+    // Unpadded Base64url length of the signature
+    private static final int ENCODED_SIGNATURE_LENGTH = 43;
+
+    // Far above any token we issue, longer headers are rejected before decoding
+    private static final int MAX_TOKEN_LENGTH = 8 * 1024;
+
+    private static final byte[] BASE64_URL =
+            "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789-_".getBytes(StandardCharsets.US_ASCII);
+
+    private static final byte[] SUBJECT = ascii("{\"sub\":");
+    private static final byte[] ROLES = ascii(",\"roles\":[");
+    private static final byte[] USER_ID = ascii(",\"uid\":");
+    private static final byte[] ROLE_MASK = ascii(",\"rm\":");
+    private static final byte[] ISSUER = ascii("],\"iss\":");
+    private static final byte[] MASK_ISSUER = ascii(",\"iss\":");
+    private static final byte[] EXPIRES = ascii(",\"exp\":");
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private final String encodedHeader = Base64.getUrlEncoder().withoutPadding()
+            .encodeToString(ascii("{\"typ\":\"JWT\",\"alg\":\"HS256\"}"));
+
+    private final byte[] encodedHeaderBytes = ascii(encodedHeader);
+
+    private final SecretKeySpec key;
+
+    private final Algorithm algorithm;
+
+    private final ThreadLocal<Scratch> scratches = ThreadLocal.withInitial(this::newScratch);
+
+    public HmacTokenEngine(byte[] secret) {
+        this.key = new SecretKeySpec(secret, ALGORITHM);
+        this.algorithm = Algorithm.HMAC256(secret);
+    }
+
+    /**
+     * Creates a signed token, `expiresAt` is in epoch milliseconds and
+     * is truncated to seconds like the `exp` claim of java-jwt
+     **/
+    public String sign(String subject, Collection<String> roles, String issuer, long expiresAt) {
+
+        Scratch scratch = scratches.get();
+
+        ByteSink payload = scratch.payload;
+        payload.reset();
+
+        payload.write(SUBJECT);
+        payload.writeQuoted(subject);
+        payload.write(ROLES);
+
+        boolean first = true;
+
+        for (String role : roles) {
+            if (!first)
+                payload.write((byte) ',');
+
+            payload.writeQuoted(role);
+            first = false;
+        }
+
+        payload.write(ISSUER);
+
+        return sign(scratch, issuer, expiresAt);
+    }
+
+    /**
+     * Creates a signed token with the user id as the `uid` claim and the roles
+     * as the `rm` claim, the Base64url role bitmask of RoleAuthorities
+     **/
+    public String signWithRoleMask(String subject, long userId, String roleMask, String issuer, long expiresAt) {
+
+        Scratch scratch = scratches.get();
+
+        ByteSink payload = scratch.payload;
+        payload.reset();
+
+        payload.write(SUBJECT);
+        payload.writeQuoted(subject);
+        payload.write(USER_ID);
+        payload.writeLong(userId);
+        payload.write(ROLE_MASK);
+        payload.writeQuoted(roleMask);
+        payload.write(MASK_ISSUER);
+
+        return sign(scratch, issuer, expiresAt);
+    }
+
+    // Completes the payload started by the caller and signs it
+    private String sign(Scratch scratch, String issuer, long expiresAt) {
+
+        ByteSink payload = scratch.payload;
+
+        payload.writeQuoted(issuer);
+        payload.write(EXPIRES);
+        payload.writeLong(expiresAt / 1000);
+        payload.write((byte) '}');
+
+        ByteSink token = scratch.token;
+        token.reset();
+
+        token.write(encodedHeaderBytes);
+        token.write((byte) '.');
+        token.writeBase64(payload.bytes, payload.length);
+
+        Mac mac = scratch.mac;
+        mac.update(token.bytes, 0, token.length);
+
+        byte[] signature = scratch.signature;
+
+        try {
+            mac.doFinal(signature, 0);
+        } catch (ShortBufferException e) {
+            throw new IllegalStateException(e);
+        }
+
+        token.write((byte) '.');
+        token.writeBase64(signature, SIGNATURE_LENGTH);
+
+        return new String(token.bytes, 0, token.length, StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * Verifies the signature and expiry of the token and returns its claims.
+     * Failures are reported with the same exception types as java-jwt.
+     **/
+    public TokenClaims verify(String token) {
+
+        TokenVerification verification = check(token, null, System.currentTimeMillis());
+
+        switch (verification.getStatus()) {
+            case MALFORMED:
+                throw new JWTDecodeException("The token is malformed.");
+            case EXPIRED:
+                throw new TokenExpiredException("The Token has expired.");
+            case INVALID_ISSUER:
+                throw new InvalidClaimException("The Claim 'iss' value doesn't match the required issuer.");
+            case INVALID_SIGNATURE:
+                throw new SignatureVerificationException(algorithm);
+            default:
+                return verification.getClaims();
+        }
+    }
+
+    /**
+     * Layout check of the token, no decoding and no allocation
+     **/
+    public boolean isWellFormed(String token) {
+
+        int length = token.length();
+
+        if (length > MAX_TOKEN_LENGTH)
+            return false;
+
+        int firstDot = encodedHeader.length();
+
+        if (length <= firstDot || token.charAt(firstDot) != '.' || !token.startsWith(encodedHeader))
+            return false;
+
+        int secondDot = length - ENCODED_SIGNATURE_LENGTH - 1;
+
+        if (secondDot <= firstDot + 1 || token.charAt(secondDot) != '.')
+            return false;
+
+        if ((secondDot - firstDot - 1) % 4 == 1)
+            return false;
+
+        return token.indexOf('.', firstDot + 1) == secondDot && token.indexOf('.', secondDot + 1) < 0;
+    }
+
+    /**
+     * Checks the token in stages of increasing cost: the layout, then the
+     * exp and iss claims of the decoded payload and only then the HMAC.
+     * Any issuer is accepted when `issuer` is null. Never throws for a bad token.
+     **/
+    public TokenVerification check(String token, String issuer, long now) {
+
+        if (!isWellFormed(token))
+            return TokenVerification.failed(TokenStatus.MALFORMED);
+
+        int firstDot = encodedHeader.length();
+        int secondDot = token.length() - ENCODED_SIGNATURE_LENGTH - 1;
+
+        Scratch scratch = scratches.get();
+
+        ByteSink payload = scratch.payload;
+        payload.reset();
+
+        if (!payload.writeBase64Decoded(token, firstDot + 1, secondDot))
+            return TokenVerification.failed(TokenStatus.MALFORMED);
+
+        TokenClaims claims = parse(payload);
+
+        if (claims == null)
+            return TokenVerification.failed(TokenStatus.MALFORMED);
+
+        if (claims.getExpiresAt() < now)
+            return TokenVerification.failed(TokenStatus.EXPIRED);
+
+        if (issuer != null && !issuer.equals(claims.getIssuer()))
+            return TokenVerification.failed(TokenStatus.INVALID_ISSUER);
+
+        ByteSink signed = scratch.token;
+        signed.reset();
+
+        if (!signed.writeAscii(token, 0, secondDot))
+            return TokenVerification.failed(TokenStatus.MALFORMED);
+
+        Mac mac = scratch.mac;
+        mac.update(signed.bytes, 0, signed.length);
+
+        byte[] expected = scratch.signature;
+
+        try {
+            mac.doFinal(expected, 0);
+        } catch (ShortBufferException e) {
+            throw new IllegalStateException(e);
+        }
+
+        ByteSink actual = scratch.decoded;
+        actual.reset();
+
+        if (!actual.writeBase64Decoded(token, secondDot + 1, token.length())
+                || !actual.equalsInConstantTime(expected))
+            return TokenVerification.failed(TokenStatus.INVALID_SIGNATURE);
+
+        return TokenVerification.verified(claims);
+    }
+
+    // Returns null when the payload is not a JSON object of the expected claim types
+    private TokenClaims parse(ByteSink payload) {
+
+        String subject = null;
+        String issuer = null;
+        long expiresAt = Long.MAX_VALUE;
+        long userId = 0;
+        String roleMask = null;
+        List<String> roles = new ArrayList<>();
+
+        try (JsonParser parser = JSON_FACTORY.createParser(payload.bytes, 0, payload.length)) {
+
+            if (parser.nextToken() != JsonToken.START_OBJECT)
+                return null;
+
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+
+                String field = parser.getCurrentName();
+                JsonToken value = parser.nextToken();
+
+                switch (field) {
+                    case "sub" -> {
+                        if (value != JsonToken.VALUE_STRING)
+                            return null;
+
+                        subject = parser.getText();
+                    }
+                    case "iss" -> {
+                        if (value != JsonToken.VALUE_STRING)
+                            return null;
+
+                        issuer = parser.getText();
+                    }
+                    case "exp" -> {
+                        if (value != JsonToken.VALUE_NUMBER_INT)
+                            return null;
+
+                        expiresAt = parser.getLongValue() * 1000;
+                    }
+                    case "uid" -> {
+                        if (value != JsonToken.VALUE_NUMBER_INT)
+                            return null;
+
+                        userId = parser.getLongValue();
+                    }
+                    case "rm" -> {
+                        if (value != JsonToken.VALUE_STRING)
+                            return null;
+
+                        roleMask = parser.getText();
+                    }
+                    case "roles" -> {
+                        if (value != JsonToken.START_ARRAY)
+                            return null;
+
+                        while (parser.nextToken() == JsonToken.VALUE_STRING)
+                            roles.add(parser.getText());
+
+                        if (parser.currentToken() != JsonToken.END_ARRAY)
+                            return null;
+                    }
+                    default -> parser.skipChildren();
+                }
+            }
+
+            if (parser.currentToken() != JsonToken.END_OBJECT)
+                return null;
+
+        } catch (IOException e) {
+            return null;
+        }
+
+        return new TokenClaims(subject, userId, issuer, expiresAt, roles.toArray(String[]::new), roleMask);
+    }
+
+    private Scratch newScratch() {
+        try {
+            Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(key);
+            return new Scratch(mac);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static byte[] ascii(String value) {
+        return value.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    private static final class Scratch {
+
+        private final Mac mac;
+
+        private final byte[] signature = new byte[SIGNATURE_LENGTH];
+
+        private final ByteSink payload = new ByteSink(256);
+        private final ByteSink token = new ByteSink(512);
+        private final ByteSink decoded = new ByteSink(64);
+
+        private Scratch(Mac mac) {
+            this.mac = mac;
+        }
+    }
+
+    /**
+     * Growable byte buffer which is reused by its owner thread
+     **/
+    private static final class ByteSink {
+
+        private static final int[] BASE64_URL_VALUES = new int[128];
+
+        static {
+            Arrays.fill(BASE64_URL_VALUES, -1);
+
+            for (int i = 0; i < BASE64_URL.length; i++)
+                BASE64_URL_VALUES[BASE64_URL[i]] = i;
+        }
+
+        private byte[] bytes;
+
+        private int length;
+
+        private ByteSink(int capacity) {
+            this.bytes = new byte[capacity];
+        }
+
+        void reset() {
+            length = 0;
+        }
+
+        void write(byte value) {
+            ensure(1);
+            bytes[length++] = value;
+        }
+
+        void write(byte[] value) {
+            ensure(value.length);
+            System.arraycopy(value, 0, bytes, length, value.length);
+            length += value.length;
+        }
+
+        void writeLong(long value) {
+
+            if (value < 0) {
+                write((byte) '-');
+                value = -value;
+            }
+
+            int digits = 1;
+
+            for (long rest = value / 10; rest > 0; rest /= 10)
+                digits++;
+
+            ensure(digits);
+
+            for (int i = length + digits - 1; i >= length; i--) {
+                bytes[i] = (byte) ('0' + value % 10);
+                value /= 10;
+            }
+
+            length += digits;
+        }
+
+        /**
+         * Writes the value as a JSON string, plain ASCII values are copied
+         * directly and the others are escaped by Jackson
+         **/
+        void writeQuoted(String value) {
+
+            int count = value.length();
+
+            ensure(count + 2);
+
+            int start = length;
+
+            bytes[length++] = '"';
+
+            for (int i = 0; i < count; i++) {
+                char c = value.charAt(i);
+
+                if (c < 0x20 || c >= 0x7F || c == '"' || c == '\\') {
+                    length = start + 1;
+                    write(JsonStringEncoder.getInstance().quoteAsUTF8(value));
+                    write((byte) '"');
+                    return;
+                }
+
+                bytes[length++] = (byte) c;
+            }
+
+            bytes[length++] = '"';
+        }
+
+        boolean writeAscii(String value, int from, int to) {
+
+            ensure(to - from);
+
+            for (int i = from; i < to; i++) {
+                char c = value.charAt(i);
+
+                if (c >= 0x80)
+                    return false;
+
+                bytes[length++] = (byte) c;
+            }
+
+            return true;
+        }
+
+        void writeBase64(byte[] source, int sourceLength) {
+
+            ensure((sourceLength + 2) / 3 * 4);
+
+            int i = 0;
+
+            for (; i + 2 < sourceLength; i += 3) {
+                int bits = (source[i] & 0xFF) << 16 | (source[i + 1] & 0xFF) << 8 | (source[i + 2] & 0xFF);
+
+                bytes[length++] = BASE64_URL[bits >>> 18 & 0x3F];
+                bytes[length++] = BASE64_URL[bits >>> 12 & 0x3F];
+                bytes[length++] = BASE64_URL[bits >>> 6 & 0x3F];
+                bytes[length++] = BASE64_URL[bits & 0x3F];
+            }
+
+            int remaining = sourceLength - i;
+
+            if (remaining == 1) {
+                int bits = (source[i] & 0xFF) << 16;
+
+                bytes[length++] = BASE64_URL[bits >>> 18 & 0x3F];
+                bytes[length++] = BASE64_URL[bits >>> 12 & 0x3F];
+
+            } else if (remaining == 2) {
+                int bits = (source[i] & 0xFF) << 16 | (source[i + 1] & 0xFF) << 8;
+
+                bytes[length++] = BASE64_URL[bits >>> 18 & 0x3F];
+                bytes[length++] = BASE64_URL[bits >>> 12 & 0x3F];
+                bytes[length++] = BASE64_URL[bits >>> 6 & 0x3F];
+            }
+        }
+
+        /**
+         * Decodes unpadded Base64url characters of the value, returns false on invalid input
+         **/
+        boolean writeBase64Decoded(String value, int from, int to) {
+
+            int count = to - from;
+
+            if (count % 4 == 1)
+                return false;
+
+            ensure(count * 3 / 4 + 1);
+
+            int bits = 0;
+            int collected = 0;
+
+            for (int i = from; i < to; i++) {
+                char c = value.charAt(i);
+
+                int decoded = c < 128 ? BASE64_URL_VALUES[c] : -1;
+
+                if (decoded < 0)
+                    return false;
+
+                bits = bits << 6 | decoded;
+                collected += 6;
+
+                if (collected >= 8) {
+                    collected -= 8;
+                    bytes[length++] = (byte) (bits >>> collected);
+                }
+            }
+
+            return true;
+        }
+
+        boolean equalsInConstantTime(byte[] other) {
+
+            if (length != other.length)
+                return false;
+
+            int difference = 0;
+
+            for (int i = 0; i < length; i++)
+                difference |= bytes[i] ^ other[i];
+
+            return difference == 0;
+        }
+
+        private void ensure(int extra) {
+            if (length + extra > bytes.length)
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, length + extra));
+        }
+    }
+}
@@ -1,69 +1,132 @@
 package com.example.springjwt.util;
 
-import com.auth0.jwt.JWT;
-import com.auth0.jwt.JWTVerifier;
-import com.auth0.jwt.algorithms.Algorithm;
-import com.auth0.jwt.interfaces.DecodedJWT;
 import com.example.springjwt.entity.Role;
 import com.example.springjwt.entity.User;
+import com.example.springjwt.security.AuthUser;
+import com.example.springjwt.security.RoleAuthorities;
+import com.example.springjwt.security.RoleSet;
+import com.example.springjwt.security.TokenPrincipal;
+import lombok.RequiredArgsConstructor;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
-import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.stereotype.Component;
 
-import java.util.*;
-import java.util.stream.Collectors;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.Collection;
 
 import static com.example.springjwt.util.SecurityConstant.*;
-import static java.util.Arrays.stream;
 
 @Component
+@RequiredArgsConstructor
 public class JwtTokenUtil {
 
 
-    private final Algorithm algorithm = Algorithm.HMAC256(KEY.getBytes());
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
 
-    private final JWTVerifier verifier = JWT.require(algorithm).build();
+    private final HmacTokenEngine engine = new HmacTokenEngine(KEY.getBytes());
+
+    private final SecureRandom random = createRandom();
+
+    private final ThreadLocal<char[]> refreshTokenChars =
+            ThreadLocal.withInitial(() -> new char[REFRESH_TOKEN_BYTES * 2]);
+
+    private final ThreadLocal<byte[]> refreshTokenBytes =
+            ThreadLocal.withInitial(() -> new byte[REFRESH_TOKEN_BYTES]);
+
+    private final RoleAuthorities roleAuthorities;
 
     public String createJwtToken(User user) {
+        return createJwtToken(user.getUserName(), user.getId(), user.getRoles());
+    }
 
-        List<String> roles = user.getRoles().stream()
-                .map(Role::getName)
-                .collect(Collectors.toList());
 
-        return JWT.create()
-                .withSubject(user.getUserName())
-                .withExpiresAt(new Date(System.currentTimeMillis() + EXPIRES_ACCESS_TOKEN))
-                .withIssuer(ISSUER)
-                .withClaim("roles", roles)
-                .sign(algorithm);
+    public String createJwtToken(AuthUser user) {
+        return createJwtToken(user.getUsername(), user.getId(), user.getRoles());
+    }
+
+
+    private String createJwtToken(String userName, long userId, Collection<Role> roles) {
+        return engine.signWithRoleMask(userName, userId, roleAuthorities.encode(roles), ISSUER,
+                System.currentTimeMillis() + EXPIRES_ACCESS_TOKEN);
     }
 
 
     public UsernamePasswordAuthenticationToken getAuthToken(String token) {
+        return getAuthToken(verifyToken(token));
+    }
+
+
+    public TokenClaims verifyToken(String token) {
+        return engine.verify(token);
+    }
 
-        DecodedJWT decodedJWT = verifier.verify(token);
 
-        String username = decodedJWT.getSubject();
+    public boolean isWellFormed(String token) {
+        return engine.isWellFormed(token);
+    }
 
-        String[] roles = decodedJWT.getClaim("roles").asArray(String.class);
 
-        Collection<SimpleGrantedAuthority> authorities = new ArrayList<>();
+    /**
+     * Staged check of the token, a valid result carries its authentication
+     **/
+    public TokenVerification checkToken(String token) {
 
-        stream(roles).forEach(role -> authorities.add(new SimpleGrantedAuthority(role)));
+        TokenVerification verification = engine.check(token, ISSUER, System.currentTimeMillis());
 
-        return new UsernamePasswordAuthenticationToken(username,
-                null, authorities);
+        if (!verification.isValid())
+            return verification;
 
+        try {
+            return verification.withAuthToken(getAuthToken(verification.getClaims()));
+        } catch (IllegalArgumentException e) {
+            // Signed by us yet the role mask is not Base64url
+            return TokenVerification.failed(TokenStatus.MALFORMED);
+        }
     }
 
 
+    /**
+     * Authentication with a TokenPrincipal, whose roles are shared by all the
+     * tokens of the same role mask. Tokens with the role names claim still work.
+     **/
+    public UsernamePasswordAuthenticationToken getAuthToken(TokenClaims claims) {
+
+        RoleSet roles = claims.getRoleMask() != null
+                ? roleAuthorities.decode(claims.getRoleMask())
+                : roleAuthorities.fromNames(claims.getRoles());
+
+        return new UsernamePasswordAuthenticationToken(new TokenPrincipal(claims.getSubject(), claims.getUserId(), roles),
+                null, roles.getAuthorities());
+    }
+
+
+    /**
+     * Generates a refresh token of 128 random bits as 32 hex characters.
+     * Uniqueness is guaranteed by the unique constraint of the token column.
+     **/
     public String generateRefreshToken() {
 
+        byte[] bytes = refreshTokenBytes.get();
+        char[] chars = refreshTokenChars.get();
+
+        random.nextBytes(bytes);
+
+        for (int i = 0; i < bytes.length; i++) {
+            chars[i * 2] = HEX[(bytes[i] >> 4) & 0xF];
+            chars[i * 2 + 1] = HEX[bytes[i] & 0xF];
+        }
+
+        return new String(chars);
+    }
 
-        return UUID.randomUUID()
-                .toString()
-                .replace("-", "");
 
+    // DRBG is thread-safe, one instance is shared by all logins
+    private static SecureRandom createRandom() {
+        try {
+            return SecureRandom.getInstance("DRBG");
+        } catch (NoSuchAlgorithmException e) {
+            return new SecureRandom();
+        }
     }
 
 
@@ -13,4 +13,28 @@ public class SecurityConstant {
     // Expires date in months
     public static final int EXPIRES_MONTH_REFRESH_TOKEN = 6;
 
+    // Random bytes of a refresh token, stored as 32 hex characters
+    public static final int REFRESH_TOKEN_BYTES = 16;
+
+    // Days a consumed refresh token is kept to detect its reuse
+    public static final int REFRESH_TOKEN_REUSE_DETECTION_DAYS = 7;
+
+    // Inserts of a new refresh token before a duplicate token is reported
+    public static final int REFRESH_TOKEN_ATTEMPTS = 3;
+
+    // Largest request body accepted by the signin, refresh and signout endpoints
+    public static final int AUTH_BODY_MAX_BYTES = 4 * 1024;
+
+    // Seconds the NDJSON user stream may hold its database connection
+    public static final int USER_STREAM_TIMEOUT_SECONDS = 60;
+
+    // Milliseconds between the version checks of unknown role names
+    public static final int ROLE_CATALOG_MISS_CHECK_MILLIS = 1000;
+
+    // Maximum count of verified access tokens kept in memory
+    public static final int TOKEN_CACHE_MAX_SIZE = 10_000;
+
+    // Role hierarchy, each role implies the roles on its right
+    public static final String ROLE_HIERARCHY = "ROLE_SUPER_ADMIN > ROLE_ADMIN > ROLE_USER";
+
 }
@@ -0,0 +1,26 @@
+package com.example.springjwt.util;
+
+import lombok.Value;
+
+/**
+ * Claims of a verified access token, `expiresAt` is in epoch milliseconds.
+ * Tokens carry their roles either as the `roles` names or as the `roleMask`
+ * bitmask, `roleMask` is null for the former. `userId` is 0 for the tokens
+ * issued before the `uid` claim.
+ **/
+@Value
+public class TokenClaims {
+
+    String subject;
+
+    long userId;
+
+    String issuer;
+
+    long expiresAt;
+
+    String[] roles;
+
+    String roleMask;
+
+}
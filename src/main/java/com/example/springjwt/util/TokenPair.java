@@ -0,0 +1,15 @@
+package com.example.springjwt.util;
+
+import lombok.Value;
+
+/**
+ * Access and refresh token issued together on signin and refresh
+ **/
+@Value
+public class TokenPair {
+
+    String accessToken;
+
+    String refreshToken;
+
+}
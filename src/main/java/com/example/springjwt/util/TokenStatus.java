@@ -0,0 +1,18 @@
+package com.example.springjwt.util;
+
+/**
+ * Outcome of an access token check, in the order the stages run
+ **/
+public enum TokenStatus {
+
+    MALFORMED,
+
+    EXPIRED,
+
+    INVALID_ISSUER,
+
+    INVALID_SIGNATURE,
+
+    VALID
+
+}
@@ -0,0 +1,52 @@
+package com.example.springjwt.util;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Value;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Result of an access token check. Failures are shared instances, claims
+ * are set when the token was verified and authToken when it was mapped to
+ * an authentication, a cached token has no claims.
+ **/
+@Value
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+public class TokenVerification {
+
+    private static final Map<TokenStatus, TokenVerification> FAILURES = new EnumMap<>(TokenStatus.class);
+
+    static {
+        for (TokenStatus status : TokenStatus.values())
+            FAILURES.put(status, new TokenVerification(status, null, null));
+    }
+
+    TokenStatus status;
+
+    TokenClaims claims;
+
+    UsernamePasswordAuthenticationToken authToken;
+
+    public static TokenVerification failed(TokenStatus status) {
+        return FAILURES.get(status);
+    }
+
+    public static TokenVerification verified(TokenClaims claims) {
+        return new TokenVerification(TokenStatus.VALID, claims, null);
+    }
+
+    public static TokenVerification authenticated(UsernamePasswordAuthenticationToken authToken) {
+        return new TokenVerification(TokenStatus.VALID, null, authToken);
+    }
+
+    public TokenVerification withAuthToken(UsernamePasswordAuthenticationToken authToken) {
+        return new TokenVerification(status, claims, authToken);
+    }
+
+    public boolean isValid() {
+        return status == TokenStatus.VALID;
+    }
+}
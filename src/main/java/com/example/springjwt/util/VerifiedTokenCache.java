@@ -0,0 +1,200 @@
+package com.example.springjwt.util;
+
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.stereotype.Component;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+import static com.example.springjwt.util.SecurityConstant.TOKEN_CACHE_MAX_SIZE;
+
+/**
+ * Keeps already verified access tokens in memory, so a token which is sent
+ * again during its lifetime costs a single hash lookup instead of a full
+ * signature verification.
+ * Entries are keyed by the SHA-256 digest of the raw token and expire
+ * together with the token's `exp` claim.
+ * Entries keep the immutable principal and authorities of the token, every
+ * hit gets its own authentication, so no request sees what another one set.
+ **/
+@Component
+public class VerifiedTokenCache {
+
+    private final ThreadLocal<MessageDigest> digests = ThreadLocal.withInitial(VerifiedTokenCache::sha256);
+
+    private final Map<ByteBuffer, Entry> entries = new ConcurrentHashMap<>();
+
+    private final AtomicBoolean sweeping = new AtomicBoolean();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    private final int maxSize;
+
+    public VerifiedTokenCache() {
+        this(TOKEN_CACHE_MAX_SIZE);
+    }
+
+    public VerifiedTokenCache(int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Returns a new authentication of the cached token or null
+     * when the token is unknown or already expired
+     **/
+    public UsernamePasswordAuthenticationToken get(String token) {
+
+        ByteBuffer key = key(token);
+
+        Entry entry = entries.get(key);
+
+        if (entry == null) {
+            misses.increment();
+            return null;
+        }
+
+        if (entry.expiresAt <= System.currentTimeMillis()) {
+            // Let the verifier report the expired token
+            if (entries.remove(key, entry))
+                evictions.increment();
+
+            misses.increment();
+            return null;
+        }
+
+        hits.increment();
+        return new UsernamePasswordAuthenticationToken(entry.principal, null, entry.authorities);
+    }
+
+    /**
+     * Caches the principal and the authorities of the authentication, the
+     * principal must be immutable
+     **/
+    public void put(String token, UsernamePasswordAuthenticationToken authentication, long expiresAt) {
+
+        if (entries.size() >= maxSize)
+            makeRoom();
+
+        entries.put(key(token), new Entry(authentication.getPrincipal(),
+                List.copyOf(authentication.getAuthorities()), expiresAt));
+    }
+
+    public void clear() {
+        entries.clear();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    /**
+     * Drops expired entries first, when the cache is still full the entries
+     * which expire soonest, the oldest tokens, are evicted until there is
+     * room again. Only one thread sweeps at a time, the others insert anyway
+     * and may overshoot the limit slightly.
+     **/
+    private void makeRoom() {
+
+        if (!sweeping.compareAndSet(false, true))
+            return;
+
+        try {
+            long now = System.currentTimeMillis();
+
+            Iterator<Entry> iterator = entries.values().iterator();
+
+            while (iterator.hasNext()) {
+                if (iterator.next().expiresAt <= now) {
+                    iterator.remove();
+                    evictions.increment();
+                }
+            }
+
+            // Evict one tenth of the cache to avoid sweeping on every insert
+            int target = maxSize - Math.max(1, maxSize / 10);
+
+            int excess = entries.size() - target;
+
+            if (excess <= 0)
+                return;
+
+            long[] expiries = entries.values().stream().mapToLong(entry -> entry.expiresAt).toArray();
+
+            // Concurrent removals may have shrunk the cache meanwhile
+            excess = Math.min(excess, expiries.length);
+
+            if (excess == 0)
+                return;
+
+            Arrays.sort(expiries);
+
+            long threshold = expiries[excess - 1];
+
+            iterator = entries.values().iterator();
+
+            while (entries.size() > target && iterator.hasNext()) {
+                if (iterator.next().expiresAt <= threshold) {
+                    iterator.remove();
+                    evictions.increment();
+                }
+            }
+
+        } finally {
+            sweeping.set(false);
+        }
+    }
+
+    private ByteBuffer key(String token) {
+
+        MessageDigest digest = digests.get();
+
+        return ByteBuffer.wrap(digest.digest(token.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static final class Entry {
+
+        private final Object principal;
+
+        private final List<GrantedAuthority> authorities;
+
+        private final long expiresAt;
+
+        private Entry(Object principal, List<GrantedAuthority> authorities, long expiresAt) {
+            this.principal = principal;
+            this.authorities = authorities;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -0,0 +1,461 @@
+package com.example.springjwt.controller;
+
+import com.auth0.jwt.JWT;
+import com.auth0.jwt.algorithms.Algorithm;
+import com.example.springjwt.repository.RefreshTokenRepo;
+import com.example.springjwt.repository.UserRepo;
+import com.example.springjwt.security.PasswordEncoderCalibration;
+import com.example.springjwt.security.AuthUser;
+import com.example.springjwt.security.UserDetailsCache;
+import com.example.springjwt.service.TokenService;
+import org.json.JSONObject;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.LocalDate;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+import static com.example.springjwt.util.SecurityConstant.ISSUER;
+import static com.example.springjwt.util.SecurityConstant.KEY;
+import static com.example.springjwt.util.SecurityConstant.REFRESH_TOKEN_REUSE_DETECTION_DAYS;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.http.MediaType.APPLICATION_JSON;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+
+@SpringBootTest
+@AutoConfigureMockMvc
+public class AuthControllerTests {
+
+    @Autowired
+    private MockMvc mvc;
+
+    @Autowired
+    private RefreshTokenRepo tokenRepo;
+
+    @Autowired
+    private UserRepo userRepo;
+
+    @Autowired
+    private PasswordEncoderCalibration calibration;
+
+    @Autowired
+    private UserDetailsCache userDetailsCache;
+
+    @Autowired
+    private TokenService tokenService;
+
+    @Autowired
+    private UserDetailsPasswordService passwordService;
+
+
+    private JSONObject signin(String username, String password) throws Exception {
+
+        var requestBody = Map.of("username", username, "password", password);
+
+        var request = post("/auth/signin")
+                .content(new JSONObject(requestBody).toString())
+                .contentType(APPLICATION_JSON);
+
+        var mvcResult = mvc.perform(request).andReturn();
+
+        // Signin completes on the hashing pool, the response is written when the async context completes
+        for (int i = 0; i < 500 && mvcResult.getRequest().isAsyncStarted(); i++)
+            Thread.sleep(10);
+
+        var response = mvcResult.getResponse();
+
+        assertThat(response.getStatus()).isEqualTo(200);
+
+        var tokens = new JSONObject(response.getContentAsString());
+
+        assertThat(tokens.getString("access_token")).isNotEmpty();
+        assertThat(tokens.getString("refresh_token")).isNotEmpty();
+
+        return tokens;
+    }
+
+    private JSONObject refresh(String refreshToken) throws Exception {
+
+        var request = post("/auth/refresh")
+                .content(new JSONObject(Map.of("token", refreshToken)).toString())
+                .contentType(APPLICATION_JSON);
+
+        var mvcResult = mvc.perform(request)
+                .andExpect(status().isOk())
+                .andReturn();
+
+        return new JSONObject(mvcResult.getResponse().getContentAsString());
+    }
+
+
+    @Test
+    @DisplayName("Can '/auth/signin:POST' issue tokens, Expected OK")
+    public void signin() throws Exception {
+
+        var tokens = signin("admin", "admin@1234");
+
+        assertThat(tokens.getString("refresh_token")).hasSize(32);
+        assertThat(tokenRepo.findByToken(tokens.getString("refresh_token"))).isNotNull();
+
+        mvc.perform(get("/users/admin")
+                        .header("Authorization", "Bearer " + tokens.getString("access_token")))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.userName").value("admin"));
+    }
+
+    @Test
+    @DisplayName("Issued access token carries the role mask, Expected role names are not in the token")
+    public void signinRoleMask() throws Exception {
+
+        var accessToken = signin("admin", "admin@1234").getString("access_token");
+
+        var decoded = JWT.decode(accessToken);
+
+        assertThat(decoded.getClaim("rm").asString()).isNotEmpty();
+        assertThat(decoded.getClaim("roles").isNull()).isTrue();
+
+        mvc.perform(get("/users")
+                        .header("Authorization", "Bearer " + accessToken))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    @DisplayName("Super admin token carries only its top role, Expected access of the implied roles")
+    public void signinTopRole() throws Exception {
+
+        var rootToken = signin("root", "root@1234").getString("access_token");
+        var adminToken = signin("admin", "admin@1234").getString("access_token");
+
+        // root has all three roles, ROLE_SUPER_ADMIN implies the others
+        assertThat(JWT.decode(rootToken).getClaim("rm").asString())
+                .isNotEqualTo(JWT.decode(adminToken).getClaim("rm").asString())
+                .hasSize(2);
+
+        mvc.perform(get("/users")
+                        .header("Authorization", "Bearer " + rootToken))
+                .andExpect(status().isOk());
+
+        mvc.perform(get("/users/user/")
+                        .header("Authorization", "Bearer " + rootToken))
+                .andExpect(status().isOk());
+
+        mvc.perform(get("/roles")
+                        .header("Authorization", "Bearer " + rootToken))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    @DisplayName("Owner and admin checks of '/users/*/:GET' run on token claims, Expected OK and BAD_REQUEST")
+    public void ownerOrAdminClaims() throws Exception {
+
+        var userToken = signin("user", "user@1234").getString("access_token");
+        var adminToken = signin("admin", "admin@1234").getString("access_token");
+
+        assertThat(JWT.decode(userToken).getClaim("uid").asLong())
+                .isEqualTo(userRepo.findByUserName("user").getId());
+
+        mvc.perform(get("/users/user")
+                        .header("Authorization", "Bearer " + userToken))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.userName").value("user"));
+
+        mvc.perform(get("/users/admin")
+                        .header("Authorization", "Bearer " + userToken))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("You are not authorized to perform this action!"));
+
+        mvc.perform(get("/users/user")
+                        .header("Authorization", "Bearer " + adminToken))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    @DisplayName("Access tokens with role names still authorize '/users:GET', Expected OK and FORBIDDEN")
+    public void legacyRoleNamesToken() throws Exception {
+
+        long expiresAt = System.currentTimeMillis() + 60_000;
+
+        var adminToken = JWT.create().withSubject("admin").withExpiresAt(new Date(expiresAt))
+                .withIssuer(ISSUER).withClaim("roles", List.of("ROLE_ADMIN"))
+                .sign(Algorithm.HMAC256(KEY.getBytes()));
+
+        var userToken = JWT.create().withSubject("user").withExpiresAt(new Date(expiresAt))
+                .withIssuer(ISSUER).withClaim("roles", List.of("ROLE_USER"))
+                .sign(Algorithm.HMAC256(KEY.getBytes()));
+
+        mvc.perform(get("/users")
+                        .header("Authorization", "Bearer " + adminToken))
+                .andExpect(status().isOk());
+
+        mvc.perform(get("/users")
+                        .header("Authorization", "Bearer " + userToken))
+                .andExpect(status().isForbidden());
+    }
+
+    @Test
+    @DisplayName("Malformed bearer token for '/users/admin:GET', Expected UNAUTHORIZED")
+    public void malformedAccessToken() throws Exception {
+
+        mvc.perform(get("/users/admin")
+                        .header("Authorization", "Bearer not-a-token"))
+                .andExpect(status().isUnauthorized())
+                .andExpect(jsonPath("$.message").value("Malformed access token!"));
+    }
+
+    @Test
+    @DisplayName("Missing bearer token for '/users/admin:GET', Expected UNAUTHORIZED")
+    public void missingAccessToken() throws Exception {
+
+        mvc.perform(get("/users/admin"))
+                .andExpect(status().isUnauthorized())
+                .andExpect(header().string("WWW-Authenticate", "Bearer"))
+                .andExpect(jsonPath("$.message").value("Invalid username or password!"));
+    }
+
+    @Test
+    @DisplayName("Bearer token is ignored on public '/auth/signup:POST', Expected BAD_REQUEST")
+    public void publicRouteSkipsToken() throws Exception {
+
+        mvc.perform(post("/auth/signup")
+                        .header("Authorization", "Bearer not-a-token")
+                        .content("{}")
+                        .contentType(APPLICATION_JSON))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("Validation Error"));
+    }
+
+    @Test
+    @DisplayName("Wrong password for '/auth/signin:POST', Expected UNAUTHORIZED")
+    public void signinBadCredentials() throws Exception {
+
+        var requestBody = Map.of("username", "admin", "password", "wrong");
+
+        var request = post("/auth/signin")
+                .content(new JSONObject(requestBody).toString())
+                .contentType(APPLICATION_JSON);
+
+        var mvcResult = mvc.perform(request).andReturn();
+
+        for (int i = 0; i < 500 && mvcResult.getRequest().isAsyncStarted(); i++)
+            Thread.sleep(10);
+
+        var response = mvcResult.getResponse();
+
+        assertThat(response.getStatus()).isEqualTo(401);
+        assertThat(response.getHeader("WWW-Authenticate")).isNull();
+        assertThat(new JSONObject(response.getContentAsString()).getString("message"))
+                .isEqualTo("Invalid username or password!");
+    }
+
+    @Test
+    @DisplayName("Principals of other user sources are loaded by name, Expected tokens and AuthUser")
+    public void otherPrincipals() {
+
+        var other = User.withUsername("user").password("unused").authorities("ROLE_USER").build();
+
+        var tokens = tokenService.createTokens(new UsernamePasswordAuthenticationToken(other, null, other.getAuthorities()));
+
+        assertThat(tokens.getAccessToken()).isNotEmpty();
+        assertThat(tokenRepo.findByToken(tokens.getRefreshToken()).getUser().getUserName()).isEqualTo("user");
+
+        String hash = userRepo.findByUserName("user").getPassword();
+
+        var updated = passwordService.updatePassword(other, hash);
+
+        assertThat(updated).isInstanceOf(AuthUser.class);
+        assertThat(updated.getPassword()).isEqualTo(hash);
+        assertThat(updated.getAuthorities()).extracting("authority").contains("ROLE_USER");
+    }
+
+    @Test
+    @DisplayName("Missing password for '/auth/signin:POST', Expected UNAUTHORIZED")
+    public void signinMissingPassword() throws Exception {
+
+        mvc.perform(post("/auth/signin")
+                        .content(new JSONObject(Map.of("username", "admin")).toString())
+                        .contentType(APPLICATION_JSON))
+                .andExpect(status().isUnauthorized())
+                .andExpect(jsonPath("$.message").value("Invalid username or password!"));
+    }
+
+    @Test
+    @DisplayName("Legacy password hash is upgraded on '/auth/signin:POST', Expected OK")
+    public void signinUpgradesPasswordHash() throws Exception {
+
+        var user = userRepo.findByUserName("user");
+        user.setPassword(new BCryptPasswordEncoder(4).encode("user@1234"));
+        userRepo.save(user);
+
+        // Written past the service, which would evict the cached user
+        userDetailsCache.evict("user");
+
+        signin("user", "user@1234");
+
+        assertThat(userRepo.findByUserName("user").getPassword())
+                .startsWith(String.format("{bcrypt}$2a$%02d$", calibration.getStrength()));
+    }
+
+    @Test
+    @DisplayName("Role added by '/roles/addtouser:POST' is in the next signin, Expected OK")
+    public void signinAfterRoleChange() throws Exception {
+
+        var username = "cached" + System.nanoTime();
+
+        var requestBody = Map.of("userName", username, "fullName", username,
+                "email", username + "@test.com", "password", "cached@1234");
+
+        mvc.perform(post("/auth/signup")
+                        .content(new JSONObject(requestBody).toString())
+                        .contentType(APPLICATION_JSON))
+                .andExpect(status().isCreated());
+
+        var userToken = signin(username, "cached@1234").getString("access_token");
+
+        mvc.perform(get("/users")
+                        .header("Authorization", "Bearer " + userToken))
+                .andExpect(status().isForbidden());
+
+        var hits = userDetailsCache.getHits();
+
+        signin(username, "cached@1234");
+
+        assertThat(userDetailsCache.getHits()).isEqualTo(hits + 1);
+
+        var adminToken = signin("admin", "admin@1234").getString("access_token");
+
+        mvc.perform(post("/roles/addtouser")
+                        .header("Authorization", "Bearer " + adminToken)
+                        .content(new JSONObject(Map.of("userName", username, "roleName", "ROLE_ADMIN")).toString())
+                        .contentType(APPLICATION_JSON))
+                .andExpect(status().isOk());
+
+        userToken = signin(username, "cached@1234").getString("access_token");
+
+        mvc.perform(get("/users")
+                        .header("Authorization", "Bearer " + userToken))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    @DisplayName("Can '/auth/refresh:POST' rotate tokens, Expected OK")
+    public void refreshTokens() throws Exception {
+
+        var tokens = signin("user", "user@1234");
+
+        var refreshed = refresh(tokens.getString("refresh_token"));
+
+        assertThat(refreshed.getString("refresh_token"))
+                .hasSize(32)
+                .isNotEqualTo(tokens.getString("refresh_token"));
+
+        var consumed = tokenRepo.findByToken(tokens.getString("refresh_token"));
+
+        assertThat(consumed.isConsumed()).isTrue();
+
+        // Kept only for the reuse detection, the reaper deletes it afterwards
+        assertThat(consumed.getExpiryDate())
+                .isEqualTo(LocalDate.now().plusDays(REFRESH_TOKEN_REUSE_DETECTION_DAYS));
+    }
+
+    @Test
+    @DisplayName("Reused token for '/auth/refresh:POST' revokes the session, Expected BAD_REQUEST")
+    public void refreshTokensReuse() throws Exception {
+
+        var tokens = signin("testuser", "testuser@1234");
+
+        var refreshed = refresh(tokens.getString("refresh_token"));
+
+        var request = post("/auth/refresh")
+                .content(new JSONObject(Map.of("token", tokens.getString("refresh_token"))).toString())
+                .contentType(APPLICATION_JSON);
+
+        mvc.perform(request)
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("Invalid refresh token"));
+
+        // The token issued by the legitimate refresh is revoked too
+        assertThat(tokenRepo.findByToken(refreshed.getString("refresh_token"))).isNull();
+    }
+
+    @Test
+    @DisplayName("Can '/auth/signout:POST' delete the refresh token, Expected OK")
+    public void signout() throws Exception {
+
+        var tokens = signin("admin", "admin@1234");
+
+        var request = post("/auth/signout")
+                .content(new JSONObject(Map.of("token", tokens.getString("refresh_token"))).toString())
+                .contentType(APPLICATION_JSON);
+
+        mvc.perform(request).andExpect(status().isOk());
+
+        assertThat(tokenRepo.findByToken(tokens.getString("refresh_token"))).isNull();
+    }
+
+    @Test
+    @DisplayName("Invalid token for '/auth/refresh:POST' and '/auth/signout:POST', Expected BAD_REQUEST")
+    public void refreshInvalidToken() throws Exception {
+
+        mvc.perform(post("/auth/refresh")
+                        .content(new JSONObject(Map.of("token", "short")).toString())
+                        .contentType(APPLICATION_JSON))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("Validation Error"))
+                .andExpect(jsonPath("$.errors.token").value("Token must length is 32 character"));
+
+        mvc.perform(post("/auth/signout")
+                        .content("{}")
+                        .contentType(APPLICATION_JSON))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("Validation Error"))
+                .andExpect(jsonPath("$.errors.token").value("must not be empty"));
+    }
+
+    @Test
+    @DisplayName("Malformed body for '/auth/refresh:POST', Expected BAD_REQUEST")
+    public void refreshMalformedBody() throws Exception {
+
+        var request = post("/auth/refresh")
+                .content("{\"token\": ")
+                .contentType(APPLICATION_JSON);
+
+        mvc.perform(request)
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("Invalid refresh token"));
+    }
+
+    @Test
+    @DisplayName("Expired token for '/auth/refresh:POST' is rejected before cleanup, Expected BAD_REQUEST")
+    public void refreshExpiredToken() throws Exception {
+
+        long userId = userRepo.findByUserName("user").getId();
+
+        String expiredToken = "0123456789abcdef0123456789abcdef";
+
+        tokenRepo.insert(expiredToken, expiredToken, userId, LocalDate.now().minusDays(1));
+
+        var request = post("/auth/refresh")
+                .content(new JSONObject(Map.of("token", expiredToken)).toString())
+                .contentType(APPLICATION_JSON);
+
+        mvc.perform(request)
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("Refresh token is expired"));
+    }
+
+}
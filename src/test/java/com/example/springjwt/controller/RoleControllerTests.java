@@ -87,6 +87,35 @@ public class RoleControllerTests {
                 .isEqualTo("application/json;charset=UTF-8");
     }
 
+    @Test
+    @WithMockUser(authorities = {"ROLE_ADMIN"})
+    @DisplayName("Can '/roles:GET' answer an unchanged catalog with its ETag, Expected NOT_MODIFIED until a role is saved")
+    public void getRolesNotModified() throws Exception {
+
+        var etag = mvc.perform(get("/roles"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader("ETag");
+
+        assertThat(etag).isNotNull();
+
+        var mvcResult = mvc.perform(get("/roles").header("If-None-Match", etag))
+                .andExpect(status().isNotModified())
+                .andReturn();
+
+        assertThat(mvcResult.getResponse().getContentAsString()).isEmpty();
+
+        var request = post("/roles")
+                .content(new JSONObject(Map.of("name", "ROLE_" + faker.lorem().characters(12).toUpperCase())).toString())
+                .contentType(APPLICATION_JSON);
+
+        mvc.perform(request)
+                .andExpect(status().isCreated());
+
+        mvc.perform(get("/roles").header("If-None-Match", etag))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.[0].version").doesNotExist());
+    }
+
     // End of get request '/roles' url tests
 
 
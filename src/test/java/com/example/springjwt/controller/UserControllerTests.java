@@ -3,6 +3,7 @@ package com.example.springjwt.controller;
 import com.example.springjwt.entity.User;
 import com.example.springjwt.repository.UserRepo;
 import com.github.javafaker.Faker;
+import org.json.JSONArray;
 import org.json.JSONObject;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -111,6 +112,87 @@ public class UserControllerTests {
                 .isEqualTo("application/json;charset=UTF-8");
     }
 
+    @Test
+    @WithMockUser(authorities = {"ROLE_ADMIN"})
+    @DisplayName("Can '/users:GET' page the records by id, Expected Ok with the next cursor of full pages")
+    public void getUsersPaged() throws Exception {
+
+        var firstPage = mvc.perform(get("/users").param("limit", "3"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(3))
+                .andExpect(jsonPath("$.[0].roles[0].name").isString())
+                .andReturn();
+
+        var cursor = firstPage.getResponse().getHeader("X-Next-Cursor");
+
+        var firstIds = new JSONArray(firstPage.getResponse().getContentAsString());
+
+        assertThat(cursor).isEqualTo(String.valueOf(firstIds.getJSONObject(2).getLong("id")));
+        assertThat(firstIds.getJSONObject(0).getLong("id")).isLessThan(firstIds.getJSONObject(1).getLong("id"));
+
+        var lastPage = mvc.perform(get("/users").param("after", cursor).param("limit", "3"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$.[0].userName").value("testuser"))
+                .andReturn();
+
+        assertThat(lastPage.getResponse().getHeader("X-Next-Cursor")).isNull();
+
+        mvc.perform(get("/users").param("limit", "0"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("Limit must be between 1 and 500!"));
+    }
+
+    @Test
+    @WithMockUser(authorities = {"ROLE_ADMIN"})
+    @DisplayName("Can '/users:GET' stream all records as NDJSON with 'ROLE_ADMIN', Expected Ok")
+    public void streamUsers() throws Exception {
+
+        var mvcResult = mvc.perform(get("/users").accept("application/x-ndjson"))
+                .andExpect(status().isOk())
+                .andReturn();
+
+        assertThat(mvcResult.getResponse().getContentType()).startsWith("application/x-ndjson");
+
+        var lines = mvcResult.getResponse().getContentAsString().split("\n");
+
+        assertThat(lines).hasSize((int) userRepo.count());
+
+        var root = new JSONObject(lines[0]);
+
+        assertThat(root.getString("userName")).isEqualTo("root");
+        assertThat(root.getJSONArray("roles").toString())
+                .contains("ROLE_SUPER_ADMIN", "ROLE_ADMIN", "ROLE_USER");
+        assertThat(root.has("password")).isFalse();
+
+        assertThat(new JSONObject(lines[3]).getJSONArray("roles").length()).isEqualTo(1);
+    }
+
+    @Test
+    @WithMockUser(authorities = {"ROLE_ADMIN"})
+    @DisplayName("Can '/users:GET' return only the requested fields of a page, Expected Ok")
+    public void getUsersFields() throws Exception {
+
+        var mvcResult = mvc.perform(get("/users").param("fields", "fullName").param("limit", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$.[0].fullName").value("Super Admin"))
+                .andExpect(jsonPath("$.[0].id").doesNotExist())
+                .andExpect(jsonPath("$.[0].roles").doesNotExist())
+                .andReturn();
+
+        // The cursor does not depend on the selected fields
+        assertThat(mvcResult.getResponse().getHeader("X-Next-Cursor")).isNotNull();
+
+        var lines = mvc.perform(get("/users").param("fields", "userName,roles").accept("application/x-ndjson"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString().split("\\n");
+
+        var root = new JSONObject(lines[0]);
+
+        assertThat(root.keySet()).containsExactlyInAnyOrder("userName", "roles");
+    }
+
     // End of get request '/users' url tests
 
 
@@ -191,6 +273,68 @@ public class UserControllerTests {
                 .isEqualTo("application/json;charset=UTF-8");
     }
 
+    @Test
+    @WithMockUser(username = "user", authorities = {"ROLE_USER"})
+    @DisplayName("Can '/users/*/:GET' return only the requested fields, Expected OK")
+    public void getUserFields() throws Exception {
+
+        mvc.perform(get("/users/user").param("fields", "userName,fullName"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.userName").value("user"))
+                .andExpect(jsonPath("$.fullName").value("User"))
+                .andExpect(jsonPath("$.id").doesNotExist())
+                .andExpect(jsonPath("$.email").doesNotExist())
+                .andExpect(jsonPath("$.roles").doesNotExist());
+
+        mvc.perform(get("/users/user").param("fields", "roles"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.roles[0].name").value("ROLE_USER"))
+                .andExpect(jsonPath("$.userName").doesNotExist());
+
+        mvc.perform(get("/users/user").param("fields", "password"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("Unknown field: password!"));
+    }
+
+    @Test
+    @WithMockUser(username = "user", authorities = {"ROLE_USER"})
+    @DisplayName("Can '/users/*/:GET' answer an unchanged user with its ETag, Expected NOT_MODIFIED")
+    public void getUserNotModified() throws Exception {
+
+        var etag = mvc.perform(get("/users/user"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader("ETag");
+
+        assertThat(etag).isNotNull();
+
+        var mvcResult = mvc.perform(get("/users/user").header("If-None-Match", etag))
+                .andExpect(status().isNotModified())
+                .andReturn();
+
+        assertThat(mvcResult.getResponse().getContentAsString()).isEmpty();
+        assertThat(mvcResult.getResponse().getHeader("ETag")).isEqualTo(etag);
+
+        // Other fields are another representation with another ETag
+        mvc.perform(get("/users/user").param("fields", "fullName").header("If-None-Match", etag))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.fullName").value("User"));
+
+        // The version is checked after the ownership
+        mvc.perform(get("/users/admin").header("If-None-Match", etag))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("You are not authorized to perform this action!"));
+    }
+
+    @Test
+    @WithMockUser(username = "user", authorities = {"ROLE_USER"})
+    @DisplayName("Can '/users/*/:GET' with sparse fields access another user's data, Expected BAD_REQUEST")
+    public void getUserFieldsOfOtherUser() throws Exception {
+
+        mvc.perform(get("/users/admin").param("fields", "fullName"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("You are not authorized to perform this action!"));
+    }
+
     @Test
     @WithMockUser(username = "admin", authorities = {"ROLE_ADMIN"})
     @DisplayName("Can '/users/*/:GET' accessible with 'ROLE_ADMIN', Expected OK")
@@ -474,6 +618,53 @@ public class UserControllerTests {
 
     }
 
+    @Test
+    @WithMockUser(username = "user", authorities = {"ROLE_USER"})
+    @DisplayName("Can '/users/:PUT' overwrite a user changed since its ETag was read, Expected CONFLICT")
+    public void updateUserStaleVersion() throws Exception {
+
+        var etag = mvc.perform(get("/users/user"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader("ETag");
+
+        User user = userRepo.findByUserName("user");
+
+        var requestBody = new JSONObject();
+
+        requestBody.put("id", user.getId());
+        requestBody.put("userName", "user");
+        requestBody.put("fullName", faker.name().fullName());
+        requestBody.put("email", faker.bothify("????@test.com"));
+        requestBody.put("password", faker.lorem().fixedString(24));
+
+        mvc.perform(put("/users")
+                        .header("If-Match", etag)
+                        .content(requestBody.toString())
+                        .contentType(APPLICATION_JSON))
+                .andExpect(status().isOk());
+
+        assertThat(userRepo.findByUserName("user").getVersion()).isEqualTo(user.getVersion() + 1);
+
+        mvc.perform(put("/users")
+                        .header("If-Match", etag)
+                        .content(requestBody.toString())
+                        .contentType(APPLICATION_JSON))
+                .andExpect(status().isConflict())
+                .andExpect(jsonPath("$.httpStatus").value(CONFLICT.name()))
+                .andExpect(jsonPath("$.message").value("Resource was modified by another request, reload it and retry!"));
+
+        mvc.perform(put("/users")
+                        .header("If-Match", "\"1-2-3-4\"")
+                        .content(requestBody.toString())
+                        .contentType(APPLICATION_JSON))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("If-Match is not an ETag of this user!"));
+
+        mvc.perform(get("/users/user").header("If-None-Match", etag))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.version").doesNotExist());
+    }
+
     @Test
     @WithMockUser(username = "admin", authorities = {"ROLE_ADMIN"})
     @DisplayName("Can '/users/*/:PUT' UPDATE user, Expected OK")
@@ -0,0 +1,216 @@
+package com.example.springjwt.filter;
+
+import com.example.springjwt.entity.User;
+import com.example.springjwt.security.LoginAttemptLimiter;
+import com.example.springjwt.security.PasswordAuthenticator;
+import com.example.springjwt.security.PasswordAuthenticator.Verified;
+import com.example.springjwt.security.PasswordHashingExecutor;
+import com.example.springjwt.service.TokenService;
+import com.example.springjwt.util.AuthJsonCodec;
+import com.example.springjwt.util.TokenPair;
+import com.example.springjwt.util.TokenVerification;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockAsyncContext;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+
+public class CustomAuthenticationFilterTests {
+
+    private final PasswordHashingExecutor hashingExecutor = new PasswordHashingExecutor(1, 4, 1_000);
+
+    private final CompletableFuture<Verified> verification = new CompletableFuture<>();
+
+    private final AtomicInteger issued = new AtomicInteger();
+
+    // Entered by the response task while it issues the tokens, released by the test
+    private final CountDownLatch issuing = new CountDownLatch(1);
+    private final CountDownLatch issue = new CountDownLatch(1);
+
+    private final PasswordAuthenticator authenticator = new PasswordAuthenticator(
+            username -> null, (user, password) -> user, new BCryptPasswordEncoder(4), hashingExecutor) {
+
+        @Override
+        public CompletableFuture<Verified> verify(UsernamePasswordAuthenticationToken request) {
+            return verification;
+        }
+
+        @Override
+        public Authentication authenticated(Verified verified) {
+            return new UsernamePasswordAuthenticationToken("user", null, null);
+        }
+    };
+
+    private final TokenService tokenService = new TokenService() {
+
+        @Override
+        public TokenPair createTokens(Authentication authentication) {
+
+            issued.incrementAndGet();
+            issuing.countDown();
+
+            try {
+                issue.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+
+            return new TokenPair("access", "refresh");
+        }
+
+        @Override
+        public TokenPair createTokens(User user) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public TokenVerification verifyAccessToken(String token) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public TokenPair refreshTokens(String refreshToken) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void deleteRefreshToken(String token) {
+            throw new UnsupportedOperationException();
+        }
+    };
+
+    private final CustomAuthenticationFilter filter = new CustomAuthenticationFilter(tokenService, authenticator,
+            hashingExecutor, new LoginAttemptLimiter(60_000, 6, 1024, 10, 50), new AuthJsonCodec());
+
+    private final AtomicReference<Runnable> started = new AtomicReference<>();
+
+    private final AtomicInteger completed = new AtomicInteger();
+
+    private final MockHttpServletResponse response = new MockHttpServletResponse();
+
+    private final MockAsyncContext asyncContext = new MockAsyncContext(null, response) {
+
+        // Queued, the test decides when the container runs it
+        @Override
+        public void start(Runnable runnable) {
+            started.set(runnable);
+        }
+
+        @Override
+        public void complete() {
+            completed.incrementAndGet();
+            super.complete();
+        }
+    };
+
+    private final MockHttpServletRequest request = new MockHttpServletRequest("POST", "/auth/signin") {
+
+        @Override
+        public AsyncContext startAsync(ServletRequest request, ServletResponse response) {
+            setAsyncStarted(true);
+            setAsyncContext(asyncContext);
+            return asyncContext;
+        }
+    };
+
+
+    @AfterEach
+    public void shutdown() {
+        hashingExecutor.shutdown();
+    }
+
+    private void signin() throws Exception {
+
+        request.setServletPath("/auth/signin");
+        request.setAsyncSupported(true);
+        request.setContent("{\"username\":\"user\",\"password\":\"secret\"}".getBytes(StandardCharsets.UTF_8));
+
+        filter.doFilter(request, response, new MockFilterChain());
+    }
+
+    private void timeout() throws IOException {
+        for (AsyncListener listener : asyncContext.getListeners())
+            listener.onTimeout(new AsyncEvent(asyncContext));
+    }
+
+    @Test
+    @DisplayName("Timeout while the response task is queued, Expected SERVICE_UNAVAILABLE only")
+    public void timeoutBeforeResponse() throws Exception {
+
+        signin();
+
+        verification.complete(new Verified(null, null));
+
+        timeout();
+
+        assertThat(response.getStatus()).isEqualTo(503);
+        assertThat(completed.get()).isEqualTo(1);
+
+        // The container runs the queued task after the timeout answered
+        issue.countDown();
+        started.get().run();
+
+        assertThat(issued.get()).isZero();
+        assertThat(response.getStatus()).isEqualTo(503);
+        assertThat(completed.get()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Timeout while the tokens are written, Expected OK and the request ended by the writer")
+    public void timeoutDuringResponse() throws Exception {
+
+        signin();
+
+        verification.complete(new Verified(null, null));
+
+        Thread writer = new Thread(started.get());
+        writer.start();
+
+        assertThat(issuing.await(5, TimeUnit.SECONDS)).isTrue();
+
+        Thread container = new Thread(() -> {
+            try {
+                timeout();
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        container.start();
+
+        // The timeout waits for the writer instead of returning to the container
+        container.join(200);
+        assertThat(container.isAlive()).isTrue();
+
+        issue.countDown();
+
+        writer.join(5_000);
+        container.join(5_000);
+
+        assertThat(container.isAlive()).isFalse();
+        assertThat(response.getStatus()).isEqualTo(200);
+        assertThat(response.getContentAsString()).contains("access", "refresh");
+        assertThat(completed.get()).isEqualTo(1);
+    }
+
+}
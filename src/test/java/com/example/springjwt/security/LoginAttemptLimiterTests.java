@@ -0,0 +1,50 @@
+package com.example.springjwt.security;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+
+public class LoginAttemptLimiterTests {
+
+    @Test
+    @DisplayName("Attempts over the username limit are rejected until the window passes")
+    public void usernameLimit() {
+
+        var limiter = new LoginAttemptLimiter(60_000, 6, 1024, 3, 100);
+
+        long now = 1_000_000;
+
+        for (int i = 0; i < 3; i++)
+            assertThat(limiter.tryAcquire("admin", "10.0.0." + i, now)).isZero();
+
+        assertThat(limiter.tryAcquire("admin", "10.0.0.9", now)).isPositive();
+        assertThat(limiter.tryAcquire("user", "10.0.0.9", now)).isZero();
+
+        assertThat(limiter.tryAcquire("admin", "10.0.0.9", now + 60_000)).isZero();
+
+        assertThat(limiter.getRejectedByUsername()).isEqualTo(1);
+        assertThat(limiter.getAllowed()).isEqualTo(5);
+    }
+
+    @Test
+    @DisplayName("Attempts over the address limit are rejected for every username")
+    public void addressLimit() {
+
+        var limiter = new LoginAttemptLimiter(60_000, 6, 1024, 100, 3);
+
+        long now = 1_000_000;
+
+        for (int i = 0; i < 3; i++)
+            assertThat(limiter.tryAcquire("user" + i, "10.0.0.1", now + i * 10_000)).isZero();
+
+        assertThat(limiter.tryAcquire("other", "10.0.0.1", now + 30_000)).isPositive();
+        assertThat(limiter.tryAcquire("other", "10.0.0.2", now + 30_000)).isZero();
+
+        // The first attempt left the window, one more fits in
+        assertThat(limiter.tryAcquire("other", "10.0.0.1", now + 70_000)).isZero();
+
+        assertThat(limiter.getRejectedByAddress()).isEqualTo(1);
+    }
+}
@@ -0,0 +1,121 @@
+package com.example.springjwt.security;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.List;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+
+public class PasswordAuthenticatorTests {
+
+    private final PasswordHashingExecutor hashingExecutor = new PasswordHashingExecutor(1, 4, 1_000);
+
+    private final AtomicReference<String> lookupThread = new AtomicReference<>();
+
+    private final List<String> hashingThreads = new CopyOnWriteArrayList<>();
+
+    private final AtomicReference<String> storedHash = new AtomicReference<>();
+
+    // Plain text hashes, "old:" marks an outdated encoding
+    private final PasswordEncoder encoder = new PasswordEncoder() {
+
+        @Override
+        public String encode(CharSequence rawPassword) {
+            hashingThreads.add(Thread.currentThread().getName());
+            return "new:" + rawPassword;
+        }
+
+        @Override
+        public boolean matches(CharSequence rawPassword, String encodedPassword) {
+            hashingThreads.add(Thread.currentThread().getName());
+            return encodedPassword.substring(4).contentEquals(rawPassword);
+        }
+
+        @Override
+        public boolean upgradeEncoding(String encodedPassword) {
+            return encodedPassword.startsWith("old:");
+        }
+    };
+
+    private final PasswordAuthenticator authenticator = new PasswordAuthenticator(
+            username -> {
+                lookupThread.set(Thread.currentThread().getName());
+
+                if (!username.equals("user"))
+                    throw new UsernameNotFoundException("User is not exist!");
+
+                return User.withUsername("user").password("old:secret").authorities("ROLE_USER").build();
+            },
+            (user, newPassword) -> {
+                storedHash.set(newPassword);
+                return User.withUserDetails(user).password(newPassword).build();
+            },
+            encoder, hashingExecutor);
+
+
+    @AfterEach
+    public void shutdown() {
+        hashingExecutor.shutdown();
+    }
+
+    @Test
+    @DisplayName("User is loaded on the calling thread, only hashing runs on the pool")
+    public void threads() {
+
+        var verified = authenticator.verify(new UsernamePasswordAuthenticationToken("user", "secret")).join();
+
+        assertThat(lookupThread.get()).isEqualTo(Thread.currentThread().getName());
+        assertThat(hashingThreads).isNotEmpty().allMatch(name -> name.startsWith("password-hashing-"));
+
+        assertThat(verified.getUpgradedHash()).isEqualTo("new:secret");
+
+        var authentication = authenticator.authenticated(verified);
+
+        assertThat(storedHash.get()).isEqualTo("new:secret");
+        assertThat(((UserDetails) authentication.getPrincipal()).getPassword()).isEqualTo("new:secret");
+        assertThat(authentication.isAuthenticated()).isTrue();
+    }
+
+    @Test
+    @DisplayName("Wrong passwords and unknown users both fail after hashing on the pool")
+    public void badCredentials() {
+
+        assertThatThrownBy(() -> authenticator.verify(new UsernamePasswordAuthenticationToken("user", "wrong")).join())
+                .isInstanceOf(CompletionException.class)
+                .hasCauseInstanceOf(BadCredentialsException.class);
+
+        hashingThreads.clear();
+
+        assertThatThrownBy(() -> authenticator.verify(new UsernamePasswordAuthenticationToken("nobody", "x")).join())
+                .isInstanceOf(CompletionException.class)
+                .hasCauseInstanceOf(BadCredentialsException.class);
+
+        assertThat(hashingThreads).isNotEmpty();
+        assertThat(storedHash.get()).isNull();
+    }
+
+    @Test
+    @DisplayName("A missing password is rejected before the user is loaded")
+    public void missingPassword() {
+
+        assertThatThrownBy(() -> authenticator.verify(new UsernamePasswordAuthenticationToken("user", null)))
+                .isInstanceOf(BadCredentialsException.class);
+
+        assertThat(lookupThread.get()).isNull();
+        assertThat(hashingThreads).isEmpty();
+    }
+
+}
@@ -0,0 +1,122 @@
+package com.example.springjwt.security;
+
+import com.example.springjwt.entity.Role;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.GrantedAuthority;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+
+public class RoleAuthoritiesTests {
+
+    private final RoleAuthorities roleAuthorities = new RoleAuthorities();
+
+    private final Role superAdmin = new Role((short) 1, "ROLE_SUPER_ADMIN");
+
+    private final Role admin = new Role((short) 2, "ROLE_ADMIN");
+
+    private final Role user = new Role((short) 3, "ROLE_USER");
+
+
+    @Test
+    @DisplayName("Role masks decode to the encoded roles")
+    public void roundTrip() {
+
+        String mask = roleAuthorities.encode(List.of(admin, user));
+
+        RoleSet roles = roleAuthorities.decode(mask);
+
+        assertThat(roles.contains(admin.getId())).isTrue();
+        assertThat(roles.contains(user.getId())).isTrue();
+        assertThat(roles.contains(superAdmin.getId())).isFalse();
+
+        assertThat(roles.getAuthorities()).extracting(GrantedAuthority::getAuthority)
+                .containsExactly("ROLE_ADMIN");
+
+        assertThat(roleAuthorities.decode(roleAuthorities.encode(List.of())).getAuthorities()).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Decoded roles and their authorities are shared instances")
+    public void interned() {
+
+        String mask = roleAuthorities.encode(List.of(admin, user));
+
+        assertThat(roleAuthorities.decode(mask)).isSameAs(roleAuthorities.decode(mask));
+
+        GrantedAuthority userAuthority = roleAuthorities.decode(roleAuthorities.encode(List.of(user)))
+                .getAuthorities().get(0);
+
+        GrantedAuthority adminAuthority = roleAuthorities.decode(roleAuthorities.encode(List.of(admin)))
+                .getAuthorities().get(0);
+
+        assertThat(roleAuthorities.decode(mask).getAuthorities().get(0)).isSameAs(adminAuthority);
+        assertThat(roleAuthorities.fromNames(new String[]{"ROLE_USER"}).getAuthorities().get(0))
+                .isSameAs(userAuthority);
+    }
+
+    @Test
+    @DisplayName("Masks carry the top roles, the implied roles are expanded on decode")
+    public void hierarchy() {
+
+        roleAuthorities.register(user);
+        roleAuthorities.register(superAdmin);
+
+        String mask = roleAuthorities.encode(List.of(superAdmin, admin, user));
+
+        assertThat(mask).isEqualTo(roleAuthorities.encode(List.of(superAdmin)));
+
+        RoleSet roles = roleAuthorities.decode(mask);
+
+        assertThat(roles.contains(superAdmin.getId())).isTrue();
+        assertThat(roles.contains(admin.getId())).isTrue();
+        assertThat(roles.contains(user.getId())).isTrue();
+
+        assertThat(roles.getAuthorities()).extracting(GrantedAuthority::getAuthority)
+                .containsExactly("ROLE_SUPER_ADMIN");
+
+        RoleSet legacy = roleAuthorities.fromNames(new String[]{"ROLE_SUPER_ADMIN", "ROLE_ADMIN", "ROLE_USER"});
+
+        assertThat(legacy.toBitSet()).isEqualTo(roles.toBitSet());
+        assertThat(legacy.getAuthorities()).isEqualTo(roles.getAuthorities());
+
+        assertThat(roleAuthorities.implies("ROLE_SUPER_ADMIN", "ROLE_USER")).isTrue();
+        assertThat(roleAuthorities.implies("ROLE_USER", "ROLE_ADMIN")).isFalse();
+    }
+
+    @Test
+    @DisplayName("Role names of older tokens map to the same role ids")
+    public void fromNames() {
+
+        roleAuthorities.register(superAdmin);
+        roleAuthorities.register(admin);
+
+        RoleSet roles = roleAuthorities.fromNames(new String[]{"ROLE_ADMIN", "ROLE_UNKNOWN"});
+
+        assertThat(roles.contains(roleAuthorities.idOf("ROLE_ADMIN"))).isTrue();
+        assertThat(roles.contains(superAdmin.getId())).isFalse();
+        assertThat(roleAuthorities.idOf("ROLE_UNKNOWN")).isEqualTo(-1);
+
+        assertThat(roles.getAuthorities()).extracting(GrantedAuthority::getAuthority)
+                .containsExactly("ROLE_ADMIN", "ROLE_UNKNOWN");
+    }
+
+    @Test
+    @DisplayName("Ids of unknown roles are dropped")
+    public void unknownIds() {
+
+        String mask = new RoleAuthorities().encode(List.of(admin, new Role((short) 40, "ROLE_OTHER")));
+
+        roleAuthorities.register(admin);
+
+        RoleSet roles = roleAuthorities.decode(mask);
+
+        assertThat(roles.contains(admin.getId())).isTrue();
+        assertThat(roles.contains(40)).isFalse();
+        assertThat(roles.getAuthorities()).hasSize(1);
+    }
+
+}
@@ -0,0 +1,48 @@
+package com.example.springjwt.security;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static com.example.springjwt.util.SecurityConstant.ROLE_HIERARCHY;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+
+public class RoleHierarchyClosureTests {
+
+    @Test
+    @DisplayName("Declared hierarchy implies the roles below transitively")
+    public void closure() {
+
+        var hierarchy = RoleHierarchyClosure.parse(ROLE_HIERARCHY);
+
+        assertThat(hierarchy.impliedBy("ROLE_SUPER_ADMIN")).containsExactlyInAnyOrder("ROLE_ADMIN", "ROLE_USER");
+        assertThat(hierarchy.impliedBy("ROLE_ADMIN")).containsExactly("ROLE_USER");
+        assertThat(hierarchy.impliedBy("ROLE_USER")).isEmpty();
+
+        assertThat(hierarchy.implies("ROLE_USER", "ROLE_USER")).isTrue();
+        assertThat(hierarchy.implies("ROLE_ADMIN", "ROLE_SUPER_ADMIN")).isFalse();
+    }
+
+    @Test
+    @DisplayName("Hierarchies over several lines are merged")
+    public void lines() {
+
+        var hierarchy = RoleHierarchyClosure.parse("A > B\nB > C\n\nA > D > E");
+
+        assertThat(hierarchy.impliedBy("A")).containsExactlyInAnyOrder("B", "C", "D", "E");
+        assertThat(hierarchy.impliedBy("D")).containsExactly("E");
+    }
+
+    @Test
+    @DisplayName("Cycles and empty roles are rejected")
+    public void invalid() {
+
+        assertThatThrownBy(() -> RoleHierarchyClosure.parse("A > B\nB > A"))
+                .isInstanceOf(IllegalArgumentException.class);
+
+        assertThatThrownBy(() -> RoleHierarchyClosure.parse("A > > B"))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+}
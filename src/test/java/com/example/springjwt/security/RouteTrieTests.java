@@ -0,0 +1,182 @@
+package com.example.springjwt.security;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpMethod;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.security.web.util.matcher.AntPathRequestMatcher;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+
+public class RouteTrieTests {
+
+    private static final String[] SEGMENTS = {"", "", "a", "b", "users", "roles", "auth", "*", "x"};
+
+    private static final String[] METHODS = {"GET", "POST", "PUT", "DELETE", "", "get"};
+
+    private static final HttpMethod[] RULE_METHODS = {null, null, HttpMethod.GET, HttpMethod.POST, HttpMethod.DELETE};
+
+    private final RouteTrie routes = new RouteTrie(SecurityConfig.ROUTES);
+
+    private final Random random = new Random(42);
+
+
+    // First matching rule of the ordered matchers, as the old authorizeRequests chain resolved it
+    private static int orderedMatch(List<AntPathRequestMatcher> matchers, String method, String path) {
+
+        var request = new MockHttpServletRequest(method, path);
+        request.setServletPath(path);
+
+        for (int i = 0; i < matchers.size(); i++) {
+            if (matchers.get(i).matches(request))
+                return i;
+        }
+
+        return -1;
+    }
+
+    private static List<AntPathRequestMatcher> antMatchers(List<RouteRule> rules) {
+
+        List<AntPathRequestMatcher> matchers = new ArrayList<>();
+
+        for (RouteRule rule : rules)
+            matchers.add(new AntPathRequestMatcher(rule.getPattern(),
+                    rule.getMethod() != null ? rule.getMethod().name() : null));
+
+        return matchers;
+    }
+
+    private String randomPath() {
+
+        var path = new StringBuilder(random.nextInt(10) == 0 ? "" : "/");
+
+        int count = random.nextInt(5);
+
+        for (int i = 0; i < count; i++) {
+            if (i > 0)
+                path.append('/');
+
+            path.append(SEGMENTS[random.nextInt(SEGMENTS.length)]);
+        }
+
+        if (random.nextBoolean())
+            path.append('/');
+
+        return path.toString();
+    }
+
+    private String randomPattern() {
+
+        var pattern = new StringBuilder();
+
+        int count = 1 + random.nextInt(3);
+
+        for (int i = 0; i < count; i++)
+            pattern.append('/').append(SEGMENTS[2 + random.nextInt(SEGMENTS.length - 2)]);
+
+        switch (random.nextInt(4)) {
+            case 0 -> pattern.append('/');
+            case 1 -> pattern.append("/**");
+            default -> {
+            }
+        }
+
+        return pattern.toString();
+    }
+
+    private void assertEquivalent(List<RouteRule> rules, int paths) {
+
+        var trie = new RouteTrie(rules);
+        var matchers = antMatchers(rules);
+
+        for (int i = 0; i < paths; i++) {
+
+            String method = METHODS[random.nextInt(METHODS.length)];
+            String path = randomPath();
+
+            int index = orderedMatch(matchers, method, path);
+
+            RouteRule expected = index >= 0 ? rules.get(index) : null;
+
+            assertThat(trie.match(method, path))
+                    .as("%s %s with %s", method, path, rules)
+                    .isEqualTo(expected);
+        }
+    }
+
+
+    private String patternOf(String method, String path) {
+        return routes.match(method, path).getPattern();
+    }
+
+    @Test
+    @DisplayName("Public routes are classified by method and path")
+    public void publicRoutes() {
+
+        assertThat(routes.match("POST", "/auth/signin").isPublic()).isTrue();
+        assertThat(routes.match("POST", "/auth").isPublic()).isTrue();
+        assertThat(routes.match("POST", "/users").isPublic()).isTrue();
+
+        assertThat(routes.match("GET", "/auth/signin").isPublic()).isFalse();
+        assertThat(routes.match("POST", "/authx").isPublic()).isFalse();
+        assertThat(routes.match("POST", "/users/").isPublic()).isFalse();
+    }
+
+    @Test
+    @DisplayName("First declared matching rule wins, like the ordered ant matchers")
+    public void ruleOrder() {
+
+        assertThat(patternOf("GET", "/users")).isEqualTo("/users");
+        assertThat(patternOf("GET", "/users/admin/")).isEqualTo("/users/*/");
+        assertThat(patternOf("GET", "/users/")).isEqualTo("/users/*/");
+        assertThat(patternOf("GET", "/users/admin")).isEqualTo("/**");
+        assertThat(patternOf("DELETE", "/roles/1")).isEqualTo("/roles/**");
+        assertThat(patternOf("GET", "/roles")).isEqualTo("/roles/**");
+        assertThat(patternOf("GET", "//roles")).isEqualTo("/**");
+    }
+
+    @Test
+    @DisplayName("Configured routes resolve like the ordered ant matchers for random paths")
+    public void configuredRoutesEquivalence() {
+        assertEquivalent(SecurityConfig.ROUTES, 20_000);
+    }
+
+    @Test
+    @DisplayName("Random rule sets resolve like the ordered ant matchers for random paths")
+    public void randomRulesEquivalence() {
+
+        for (int set = 0; set < 500; set++) {
+
+            List<RouteRule> rules = new ArrayList<>();
+
+            int count = 1 + random.nextInt(8);
+
+            for (int i = 0; i < count; i++)
+                rules.add(new RouteRule(RULE_METHODS[random.nextInt(RULE_METHODS.length)], randomPattern(),
+                        RouteRule.Access.HAS_AUTHORITY, "ROLE_" + i));
+
+            if (random.nextBoolean())
+                rules.add(RouteRule.authenticated(null, "/**"));
+
+            assertEquivalent(rules, 200);
+        }
+    }
+
+    @Test
+    @DisplayName("Patterns the trie can not compile are rejected at startup")
+    public void unsupportedPatterns() {
+
+        assertThatThrownBy(() -> new RouteTrie(List.of(RouteRule.permitAll(null, "/a/**/b"))))
+                .isInstanceOf(IllegalArgumentException.class);
+
+        assertThatThrownBy(() -> new RouteTrie(List.of(RouteRule.permitAll(null, "/users/{id}"))))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+}
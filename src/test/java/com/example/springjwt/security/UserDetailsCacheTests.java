@@ -0,0 +1,157 @@
+package com.example.springjwt.security;
+
+import com.example.springjwt.repository.UserCredentials;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+
+public class UserDetailsCacheTests {
+
+    private final AtomicInteger loads = new AtomicInteger();
+
+    private final Function<String, AuthUser> loader = username -> {
+        loads.incrementAndGet();
+        return user(username);
+    };
+
+
+    private static AuthUser user(String username) {
+
+        return AuthUser.of(List.of(new UserCredentials() {
+            public long getId() {
+                return 1;
+            }
+
+            public String getUserName() {
+                return username;
+            }
+
+            public String getPassword() {
+                return "{bcrypt}hash";
+            }
+
+            public Short getRoleId() {
+                return 3;
+            }
+
+            public String getRoleName() {
+                return "ROLE_USER";
+            }
+        }));
+    }
+
+    @Test
+    @DisplayName("Cached users are reused until their TTL passes")
+    public void ttl() {
+
+        var cache = new UserDetailsCache(1_000, 100);
+
+        var first = cache.get("user", loader, 0);
+
+        assertThat(cache.get("user", loader, 999)).isSameAs(first);
+        assertThat(loads).hasValue(1);
+
+        assertThat(cache.get("user", loader, 1_000)).isNotSameAs(first);
+        assertThat(loads).hasValue(2);
+
+        assertThat(cache.getHits()).isEqualTo(1);
+        assertThat(cache.getMisses()).isEqualTo(2);
+        assertThat(cache.getEvictions()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Evicted users and missing users are loaded again")
+    public void evictAndMissing() {
+
+        var cache = new UserDetailsCache(60_000, 100);
+
+        cache.get("user", loader, 0);
+        cache.evict("user");
+        cache.get("user", loader, 0);
+
+        assertThat(loads).hasValue(2);
+        assertThat(cache.getInvalidations()).isEqualTo(1);
+
+        assertThat(cache.get("nobody", name -> null, 0)).isNull();
+        assertThat(cache.size()).isEqualTo(1);
+
+        assertThatThrownBy(() -> cache.get("broken", name -> {
+            throw new IllegalStateException("database is down");
+        }, 0)).hasMessage("database is down");
+
+        assertThat(cache.get("broken", loader, 0)).isNotNull();
+    }
+
+    @Test
+    @DisplayName("Concurrent misses of the same user share one load")
+    public void singleFlight() throws Exception {
+
+        var cache = new UserDetailsCache(60_000, 100);
+
+        var started = new CountDownLatch(1);
+        var release = new CountDownLatch(1);
+
+        Function<String, AuthUser> slowLoader = username -> {
+            started.countDown();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return loader.apply(username);
+        };
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+
+        try {
+            List<Future<AuthUser>> results = new ArrayList<>();
+
+            results.add(executor.submit(() -> cache.get("user", slowLoader)));
+
+            started.await(5, TimeUnit.SECONDS);
+
+            for (int i = 0; i < 7; i++)
+                results.add(executor.submit(() -> cache.get("user", slowLoader)));
+
+            Thread.sleep(50);
+            release.countDown();
+
+            AuthUser first = results.get(0).get(5, TimeUnit.SECONDS);
+
+            for (Future<AuthUser> result : results)
+                assertThat(result.get(5, TimeUnit.SECONDS)).isSameAs(first);
+
+            assertThat(loads).hasValue(1);
+
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    @DisplayName("Full cache evicts entries to stay bounded")
+    public void bounded() {
+
+        var cache = new UserDetailsCache(60_000, 10);
+
+        for (int i = 0; i < 50; i++)
+            cache.get("user" + i, loader, 0);
+
+        assertThat(cache.size()).isLessThanOrEqualTo(10);
+        assertThat(cache.getEvictions()).isPositive();
+    }
+
+}
@@ -0,0 +1,105 @@
+package com.example.springjwt.service;
+
+import com.example.springjwt.entity.Role;
+import com.example.springjwt.repository.CatalogVersionRepo;
+import com.example.springjwt.repository.RoleRepo;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+
+// The poller would pick up the version changes the tests check by hand
+@SpringBootTest(properties = "auth.role-catalog.poll-ms=3600000")
+@DirtiesContext
+public class RoleCatalogTests {
+
+    @Autowired
+    private RoleCatalog roleCatalog;
+
+    @Autowired
+    private RoleService roleService;
+
+    @Autowired
+    private RoleRepo roleRepo;
+
+    @Autowired
+    private CatalogVersionRepo versionRepo;
+
+
+    @Test
+    @DisplayName("Saved roles are served from the catalog, Expected new version without reload")
+    public void saveRole() {
+
+        long version = roleCatalog.getVersion();
+
+        Role saved = roleService.saveRole(new Role((short) 0, "ROLE_CATALOG"));
+
+        assertThat(roleCatalog.getVersion()).isEqualTo(version + 1);
+        assertThat(roleCatalog.findByName("ROLE_CATALOG").getId()).isEqualTo(saved.getId());
+        assertThat(roleCatalog.findById(saved.getId()).getName()).isEqualTo("ROLE_CATALOG");
+        assertThat(roleCatalog.getRoles()).extracting(Role::getName)
+                .startsWith("ROLE_SUPER_ADMIN", "ROLE_ADMIN", "ROLE_USER")
+                .contains("ROLE_CATALOG");
+
+        assertThat(roleCatalog.refreshIfChanged()).isFalse();
+    }
+
+    @Test
+    @DisplayName("Roles added by another node are loaded on the version check")
+    public void otherNode() {
+
+        roleCatalog.getRoles();
+
+        // What saveRole does on another node
+        Role saved = roleRepo.save(new Role((short) 0, "ROLE_OTHER_NODE"));
+        long version = versionRepo.increment(RoleCatalog.CATALOG);
+
+        assertThat(roleCatalog.findById(saved.getId())).isNull();
+
+        assertThat(roleCatalog.refreshIfChanged()).isTrue();
+        assertThat(roleCatalog.getVersion()).isEqualTo(version);
+        assertThat(roleCatalog.findById(saved.getId()).getName()).isEqualTo("ROLE_OTHER_NODE");
+    }
+
+    @Test
+    @DisplayName("Unknown role names check the version before giving up")
+    public void unknownName() {
+
+        roleCatalog.getRoles();
+
+        roleRepo.save(new Role((short) 0, "ROLE_LATE"));
+        versionRepo.increment(RoleCatalog.CATALOG);
+
+        assertThat(roleCatalog.findByName("ROLE_LATE")).isNotNull();
+        assertThat(roleCatalog.findByName("ROLE_MISSING")).isNull();
+
+        // Further misses within the interval are left to the poll
+        roleRepo.save(new Role((short) 0, "ROLE_LATER"));
+        versionRepo.increment(RoleCatalog.CATALOG);
+
+        assertThat(roleCatalog.findByName("ROLE_LATER")).isNull();
+
+        assertThat(roleCatalog.refreshIfChanged()).isTrue();
+        assertThat(roleCatalog.findByName("ROLE_LATER")).isNotNull();
+    }
+
+    @Test
+    @DisplayName("Roles are handed out as copies, Expected catalog unchanged by callers")
+    public void copies() {
+
+        Role role = roleCatalog.findByName("ROLE_USER");
+
+        assertThat(role).isNotSameAs(roleCatalog.findByName("ROLE_USER"));
+
+        role.setName("ROLE_CHANGED");
+        roleCatalog.getRoles().get(0).setName("ROLE_CHANGED");
+
+        assertThat(roleCatalog.findById(role.getId()).getName()).isEqualTo("ROLE_USER");
+        assertThat(roleCatalog.getRoles()).extracting(Role::getName).doesNotContain("ROLE_CHANGED");
+    }
+
+}
@@ -0,0 +1,73 @@
+package com.example.springjwt.task;
+
+import com.example.springjwt.repository.RefreshTokenRepo;
+import com.example.springjwt.repository.UserRepo;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+
+import java.time.LocalDate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+
+@SpringBootTest(properties = {
+        "auth.refresh-token.purge.batch-size=4",
+        "auth.refresh-token.purge.pause-ms=0"})
+@DirtiesContext
+public class ExpiredTokenPurgerTests {
+
+    @Autowired
+    private ExpiredTokenPurger tokenPurger;
+
+    @Autowired
+    private RefreshTokenRepo tokenRepo;
+
+    @Autowired
+    private UserRepo userRepo;
+
+
+    @Test
+    @DisplayName("Expired refresh tokens are purged in batches, Expected only valid tokens left")
+    public void purge() {
+
+        long userId = userRepo.findByUserName("user").getId();
+
+        LocalDate today = LocalDate.now();
+
+        for (int i = 0; i < 10; i++)
+            tokenRepo.insert(String.format("%032d", i), "expired", userId, today.minusDays(1 + i));
+
+        tokenRepo.insert(String.format("%032d", 10), "valid", userId, today);
+
+        var report = tokenPurger.purge(today);
+
+        assertThat(report.getRows()).isEqualTo(10);
+        assertThat(report.getBatches()).isEqualTo(3);
+        assertThat(tokenRepo.findByToken(String.format("%032d", 0))).isNull();
+        assertThat(tokenRepo.findByToken(String.format("%032d", 10))).isNotNull();
+    }
+
+    @Test
+    @DisplayName("A batch deletes the tokens which expired first, Expected later ones left")
+    public void batchOrder() {
+
+        long userId = userRepo.findByUserName("user").getId();
+
+        LocalDate today = LocalDate.now();
+
+        // Two tokens per day, the batch ends inside a day
+        for (int i = 0; i < 6; i++)
+            tokenRepo.insert(String.format("%032d", 100 + i), "expired", userId, today.minusDays(10 - i / 2));
+
+        assertThat(tokenRepo.deleteExpiredBefore(today, 3)).isEqualTo(3);
+
+        for (int i = 0; i < 6; i++)
+            assertThat(tokenRepo.findByToken(String.format("%032d", 100 + i)) == null).isEqualTo(i < 3);
+
+        tokenPurger.purge(today);
+    }
+
+}
@@ -0,0 +1,99 @@
+package com.example.springjwt.task;
+
+import com.example.springjwt.repository.MaintenanceLeaseRepo;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+
+@SpringBootTest
+public class LeaseManagerTests {
+
+    @Autowired
+    private MaintenanceLeaseRepo leaseRepo;
+
+    @Autowired
+    private ThreadPoolTaskScheduler taskScheduler;
+
+
+    @Test
+    @DisplayName("Only the lease holder runs the job until the lease expires")
+    public void runExclusively() throws Exception {
+
+        var nodeA = new LeaseManager(leaseRepo, "node-a", 60_000, 0);
+        var nodeB = new LeaseManager(leaseRepo, "node-b", 60_000, 0);
+
+        var runs = new AtomicInteger();
+
+        assertThat(nodeA.runExclusively("test-job", Duration.ofMillis(300), leaseHeld -> runs.incrementAndGet())).isTrue();
+        assertThat(nodeB.runExclusively("test-job", Duration.ofMillis(300), leaseHeld -> runs.incrementAndGet())).isFalse();
+
+        // The holder keeps its lease
+        assertThat(nodeA.runExclusively("test-job", Duration.ofMillis(300), leaseHeld -> runs.incrementAndGet())).isTrue();
+
+        Thread.sleep(400);
+
+        // Fail over after the lease expired
+        assertThat(nodeB.runExclusively("test-job", Duration.ofMillis(300), leaseHeld -> runs.incrementAndGet())).isTrue();
+
+        assertThat(runs.get()).isEqualTo(3);
+        assertThat(leaseRepo.findById("test-job").orElseThrow().getOwner()).isEqualTo("node-b");
+
+        nodeA.shutdown();
+        nodeB.shutdown();
+    }
+
+    @Test
+    @DisplayName("The job is told to stop once another node took the lease")
+    public void leaseLost() {
+
+        var nodeA = new LeaseManager(leaseRepo, "node-a", 300, 0);
+
+        var heldAtStart = new AtomicBoolean();
+        var stopped = new AtomicBoolean();
+
+        nodeA.runExclusively("lost-job", Duration.ZERO, leaseHeld -> {
+
+            heldAtStart.set(leaseHeld.getAsBoolean());
+
+            var lease = leaseRepo.findById("lost-job").orElseThrow();
+            lease.setOwner("node-b");
+            leaseRepo.save(lease);
+
+            // The next heartbeat, after 100 ms, notices the loss
+            for (int i = 0; i < 100 && leaseHeld.getAsBoolean(); i++)
+                sleep(10);
+
+            stopped.set(!leaseHeld.getAsBoolean());
+        });
+
+        assertThat(heldAtStart.get()).isTrue();
+        assertThat(stopped.get()).isTrue();
+        assertThat(leaseRepo.findById("lost-job").orElseThrow().getOwner()).isEqualTo("node-b");
+
+        nodeA.shutdown();
+    }
+
+    @Test
+    @DisplayName("The reaper sleeping in its lease jitter leaves a scheduler thread to the other jobs")
+    public void schedulerThreads() {
+        assertThat(taskScheduler.getScheduledThreadPoolExecutor().getCorePoolSize()).isGreaterThanOrEqualTo(2);
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+}
@@ -0,0 +1,157 @@
+package com.example.springjwt.util;
+
+import com.auth0.jwt.JWT;
+import com.auth0.jwt.algorithms.Algorithm;
+import com.auth0.jwt.exceptions.SignatureVerificationException;
+import com.auth0.jwt.exceptions.TokenExpiredException;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Date;
+import java.util.List;
+
+import static com.example.springjwt.util.SecurityConstant.ISSUER;
+import static com.example.springjwt.util.SecurityConstant.KEY;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+
+public class HmacTokenEngineTests {
+
+    private final HmacTokenEngine engine = new HmacTokenEngine(KEY.getBytes());
+
+    private final Algorithm algorithm = Algorithm.HMAC256(KEY.getBytes());
+
+
+    private String createWithJavaJwt(String subject, List<String> roles, long expiresAt) {
+        return JWT.create()
+                .withSubject(subject)
+                .withExpiresAt(new Date(expiresAt))
+                .withIssuer(ISSUER)
+                .withClaim("roles", roles)
+                .sign(algorithm);
+    }
+
+    @Test
+    @DisplayName("Signed tokens are byte-identical to java-jwt tokens")
+    public void signLikeJavaJwt() {
+
+        long expiresAt = System.currentTimeMillis() + 60_000;
+
+        for (String subject : List.of("root", "john.doe", "quote\"back\\slash", "ünïcødé\t")) {
+
+            var roles = List.of("ROLE_SUPER_ADMIN", "ROLE_ADMIN", "ROLE_USER");
+
+            assertThat(engine.sign(subject, roles, ISSUER, expiresAt))
+                    .isEqualTo(createWithJavaJwt(subject, roles, expiresAt));
+        }
+
+        assertThat(engine.sign("user", List.of(), ISSUER, expiresAt))
+                .isEqualTo(createWithJavaJwt("user", List.of(), expiresAt));
+    }
+
+    @Test
+    @DisplayName("Tokens of java-jwt are verified, Expected claims")
+    public void verifyJavaJwtToken() {
+
+        long expiresAt = System.currentTimeMillis() + 60_000;
+
+        var claims = engine.verify(createWithJavaJwt("admin", List.of("ROLE_ADMIN", "ROLE_USER"), expiresAt));
+
+        assertThat(claims.getSubject()).isEqualTo("admin");
+        assertThat(claims.getIssuer()).isEqualTo(ISSUER);
+        assertThat(claims.getExpiresAt()).isEqualTo(expiresAt / 1000 * 1000);
+        assertThat(claims.getRoles()).containsExactly("ROLE_ADMIN", "ROLE_USER");
+    }
+
+    @Test
+    @DisplayName("Role mask tokens are valid java-jwt tokens, Expected claims")
+    public void signWithRoleMask() {
+
+        long expiresAt = System.currentTimeMillis() + 60_000;
+
+        String token = engine.signWithRoleMask("admin", 7, "Dg", ISSUER, expiresAt);
+
+        var decoded = JWT.require(algorithm).withIssuer(ISSUER).build().verify(token);
+
+        assertThat(decoded.getSubject()).isEqualTo("admin");
+        assertThat(decoded.getClaim("uid").asLong()).isEqualTo(7);
+        assertThat(decoded.getClaim("rm").asString()).isEqualTo("Dg");
+
+        var claims = engine.verify(token);
+
+        assertThat(claims.getUserId()).isEqualTo(7);
+        assertThat(claims.getRoleMask()).isEqualTo("Dg");
+        assertThat(claims.getRoles()).isEmpty();
+        assertThat(claims.getExpiresAt()).isEqualTo(expiresAt / 1000 * 1000);
+
+        assertThat(engine.verify(createWithJavaJwt("admin", List.of("ROLE_ADMIN"), expiresAt)).getRoleMask()).isNull();
+    }
+
+    @Test
+    @DisplayName("Tampered and expired tokens are rejected")
+    public void rejectInvalidTokens() {
+
+        String token = engine.sign("user", List.of("ROLE_USER"), ISSUER, System.currentTimeMillis() + 60_000);
+
+        String forged = engine.sign("admin", List.of("ROLE_ADMIN"), ISSUER, System.currentTimeMillis() + 60_000);
+
+        String tampered = forged.substring(0, forged.lastIndexOf('.')) + token.substring(token.lastIndexOf('.'));
+
+        assertThatThrownBy(() -> engine.verify(tampered))
+                .isInstanceOf(SignatureVerificationException.class);
+
+        String expired = engine.sign("user", List.of("ROLE_USER"), ISSUER, System.currentTimeMillis() - 60_000);
+
+        assertThatThrownBy(() -> engine.verify(expired))
+                .isInstanceOf(TokenExpiredException.class);
+    }
+
+    @Test
+    @DisplayName("Staged check reports why a token is rejected")
+    public void checkStages() {
+
+        long now = System.currentTimeMillis();
+
+        String token = engine.sign("user", List.of("ROLE_USER"), ISSUER, now + 60_000);
+
+        assertThat(engine.check(token, ISSUER, now).getStatus()).isEqualTo(TokenStatus.VALID);
+        assertThat(engine.check(token, ISSUER, now).getClaims().getSubject()).isEqualTo("user");
+
+        assertThat(engine.check("garbage", ISSUER, now).getStatus()).isEqualTo(TokenStatus.MALFORMED);
+        assertThat(engine.check(token + ".x", ISSUER, now).getStatus()).isEqualTo(TokenStatus.MALFORMED);
+
+        assertThat(engine.check(token, ISSUER, now + 120_000).getStatus()).isEqualTo(TokenStatus.EXPIRED);
+        assertThat(engine.check(token, "other.com", now).getStatus()).isEqualTo(TokenStatus.INVALID_ISSUER);
+
+        String tampered = token.substring(0, token.length() - 2) + (token.endsWith("AA") ? "BA" : "AA");
+
+        assertThat(engine.check(tampered, ISSUER, now).getStatus()).isEqualTo(TokenStatus.INVALID_SIGNATURE);
+    }
+
+    @Test
+    @DisplayName("Object or array values of string claims are malformed, Expected nested claims ignored")
+    public void rejectNestedClaims() {
+
+        long now = System.currentTimeMillis();
+
+        String token = engine.sign("user", List.of("ROLE_USER"), ISSUER, now + 60_000);
+
+        String header = token.substring(0, token.indexOf('.'));
+        String signature = token.substring(token.lastIndexOf('.'));
+
+        for (String payload : List.of(
+                "{\"sub\":{\"exp\":1,\"iss\":\"x\"}}",
+                "{\"iss\":[\"x\"],\"exp\":1}",
+                "{\"sub\":5}")) {
+
+            String forged = header + "." + Base64.getUrlEncoder().withoutPadding()
+                    .encodeToString(payload.getBytes(StandardCharsets.UTF_8)) + signature;
+
+            assertThat(engine.check(forged, ISSUER, now).getStatus()).isEqualTo(TokenStatus.MALFORMED);
+        }
+    }
+
+}
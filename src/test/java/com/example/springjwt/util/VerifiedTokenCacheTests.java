@@ -0,0 +1,79 @@
+package com.example.springjwt.util;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.AuthorityUtils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+
+public class VerifiedTokenCacheTests {
+
+    private final VerifiedTokenCache cache = new VerifiedTokenCache(10);
+
+
+    private UsernamePasswordAuthenticationToken authToken(String name) {
+        return new UsernamePasswordAuthenticationToken(name, null, AuthorityUtils.createAuthorityList("ROLE_USER"));
+    }
+
+    @Test
+    @DisplayName("Every hit gets its own authentication")
+    public void hit() {
+
+        cache.put("token", authToken("user"), System.currentTimeMillis() + 60_000);
+
+        var first = cache.get("token");
+        first.setDetails("first request");
+
+        var second = cache.get("token");
+
+        assertThat(second).isNotSameAs(first);
+        assertThat(second.getName()).isEqualTo("user");
+        assertThat(second.getAuthorities()).extracting("authority").containsExactly("ROLE_USER");
+        assertThat(second.getDetails()).isNull();
+        assertThat(second.isAuthenticated()).isTrue();
+
+        assertThat(cache.get("other")).isNull();
+        assertThat(cache.getHits()).isEqualTo(2);
+        assertThat(cache.getMisses()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Expired tokens are not returned")
+    public void expiry() {
+
+        cache.put("token", authToken("user"), System.currentTimeMillis() - 1);
+
+        assertThat(cache.get("token")).isNull();
+        assertThat(cache.size()).isZero();
+        assertThat(cache.getEvictions()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("A full cache drops expired tokens first, then the soonest expiring")
+    public void eviction() {
+
+        long now = System.currentTimeMillis();
+
+        cache.put("expired", authToken("expired"), now - 1);
+
+        for (int i = 1; i < 10; i++)
+            cache.put("token" + i, authToken("user" + i), now + i * 60_000L);
+
+        cache.put("latest", authToken("latest"), now + 60 * 60_000L);
+
+        assertThat(cache.get("expired")).isNull();
+        assertThat(cache.get("token1")).isNotNull();
+        assertThat(cache.size()).isEqualTo(10);
+
+        cache.put("newest", authToken("newest"), now + 120 * 60_000L);
+
+        assertThat(cache.get("token1")).isNull();
+        assertThat(cache.get("token2")).isNotNull();
+        assertThat(cache.get("latest")).isNotNull();
+        assertThat(cache.get("newest")).isNotNull();
+        assertThat(cache.getEvictions()).isEqualTo(2);
+    }
+
+}